@@ -0,0 +1,55 @@
+package com.jc.bench;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.ThreeAddressCodeGenerator;
+import com.jc.node.Node;
+
+// code generation alone on machine-built trees; run with -prof gc to see allocation per statement
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CodegenBenchmark {
+
+    @Param({ Trees.FLAT, Trees.NESTED })
+    public String shape;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int statements;
+
+    private Node tree;
+    private HashMap<String, String> symbolTable;
+    private HashMap<String, String> tempTable;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Trees trees = new Trees();
+        tree = trees.build(shape, statements);
+        symbolTable = trees.getSymbolTable();
+        tempTable = trees.getTempTable();
+    }
+
+    @Benchmark
+    public List<Command> generate() {
+        return new ThreeAddressCodeGenerator(symbolTable, tempTable).generate(tree);
+    }
+}
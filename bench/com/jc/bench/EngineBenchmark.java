@@ -0,0 +1,96 @@
+package com.jc.bench;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jc.CompiledProgram;
+import com.jc.JcEngine;
+
+// runs of one shared CompiledProgram per second, spread over a number of worker threads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    private static final int BATCH = 256;
+
+    @Param({ Workloads.LOOPS, Workloads.ARITHMETIC, Workloads.PRINT })
+    public String workload;
+
+    @Param({ "100" })
+    public int size;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    @Param({ "true", "false" })
+    public boolean virtual;
+
+    private CompiledProgram program;
+    private ExecutorService executor;
+    private List<Callable<Void>> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        program = new JcEngine().compile(Workloads.source(workload, size));
+        executor = Executors.newFixedThreadPool(threads, threadFactory(virtual));
+
+        WritableByteChannel sink = Channels.newChannel(OutputStream.nullOutputStream());
+        batch = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(() -> {
+                program.run(sink);
+                return null;
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void run() throws Exception {
+        executor.invokeAll(batch);
+    }
+
+    // virtual threads need JDK 21; on older runtimes both settings use platform threads
+    private static ThreadFactory threadFactory(boolean virtual) {
+        if (virtual) {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                // falls through to platform threads
+            }
+        }
+        return Executors.defaultThreadFactory();
+    }
+}
@@ -0,0 +1,97 @@
+package com.jc.bench;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jc.Lexer;
+import com.jc.Parser;
+import com.jc.Source;
+import com.jc.sym;
+import com.jc.interpreter.Command;
+import com.jc.interpreter.ThreeAddressCodeGenerator;
+import com.jc.node.Node;
+
+import java_cup.runtime.ComplexSymbolFactory;
+import java_cup.runtime.Symbol;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontendBenchmark {
+
+    @Param({ Workloads.SAMPLE, Workloads.LOOPS, Workloads.ARITHMETIC, Workloads.BOOLEAN, Workloads.PRINT })
+    public String workload;
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private Path file;
+    private byte[] source;
+    private Node tree;
+    private HashMap<String, String> symbolTable;
+    private HashMap<String, String> tempTable;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        file = Workloads.write(workload, size);
+        source = Files.readAllBytes(file);
+
+        Parser parser = new Parser(file.toString());
+        parser.parse();
+        tree = parser.getTree();
+        symbolTable = parser.getSymbolTable();
+        tempTable = parser.getTempTable();
+    }
+
+    @Benchmark
+    public int lex() throws Exception {
+        Lexer lexer = new Lexer(new ComplexSymbolFactory(), new ByteArrayInputStream(source));
+        int tokens = 0;
+        for (Symbol symbol = lexer.yylex(); symbol.sym != sym.EOF; symbol = lexer.yylex()) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public int lexMapped() throws Exception {
+        Lexer lexer = new Lexer(new ComplexSymbolFactory(), Source.map(file));
+        int tokens = 0;
+        for (Symbol symbol = lexer.yylex(); symbol.sym != sym.EOF; symbol = lexer.yylex()) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public Node parse() throws Exception {
+        Parser parser = new Parser(file.toString());
+        parser.parse();
+        return parser.getTree();
+    }
+
+    @Benchmark
+    public List<Command> generate() {
+        return new ThreeAddressCodeGenerator(new HashMap<>(symbolTable), new HashMap<>(tempTable)).generate(tree);
+    }
+}
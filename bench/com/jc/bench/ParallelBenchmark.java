@@ -0,0 +1,54 @@
+package com.jc.bench;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jc.CompiledProgram;
+import com.jc.JcEngine;
+
+// one large parallel for summation, split over a pool of the given number of threads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int size;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private CompiledProgram program;
+    private WritableByteChannel sink;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        JcEngine engine = new JcEngine();
+        engine.setParallelism(threads);
+        program = engine.compile(Workloads.source(Workloads.PARALLEL, size));
+        sink = Channels.newChannel(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void run() {
+        program.run(sink);
+    }
+}
@@ -0,0 +1,83 @@
+package com.jc.bench;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jc.Parser;
+import com.jc.interpreter.Command;
+import com.jc.interpreter.FlushPolicy;
+import com.jc.interpreter.FunctionCode;
+import com.jc.interpreter.Lowering;
+import com.jc.interpreter.Output;
+import com.jc.interpreter.Program;
+import com.jc.interpreter.Runner;
+import com.jc.interpreter.ThreeAddressCodeGenerator;
+import com.jc.optimizer.Optimizer;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunBenchmark {
+
+    @Param({ Workloads.SAMPLE, Workloads.LOOPS, Workloads.ARITHMETIC, Workloads.BOOLEAN, Workloads.PRINT, Workloads.ARRAYS, Workloads.STRINGS, Workloads.FIBONACCI })
+    public String workload;
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    @Param({ "true", "false" })
+    public boolean tiered;
+
+    private Program program;
+    private Output output;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Path file = Workloads.write(workload, size);
+        Parser parser = new Parser(file.toString());
+        parser.parse();
+        HashMap<String, String> symbolTable = parser.getSymbolTable();
+        HashMap<String, String> tempTable = parser.getTempTable();
+
+        ThreeAddressCodeGenerator codeGenerator = new ThreeAddressCodeGenerator(symbolTable, tempTable);
+        List<Command> code = codeGenerator.generate(parser.getTree());
+        List<FunctionCode> functions = codeGenerator.getFunctions();
+        Optimizer optimizer = new Optimizer(1, tempTable);
+        code = optimizer.optimize(code);
+        for (FunctionCode function : functions) {
+            function.code = optimizer.optimize(function.code);
+        }
+        program = new Lowering(optimizer.allocateSlots(code, functions, symbolTable, tempTable)).lower(code, functions);
+
+        output = new Output(Channels.newChannel(OutputStream.nullOutputStream()), FlushPolicy.EXIT);
+    }
+
+    @Benchmark
+    public Runner run() {
+        Runner runner = new Runner(program);
+        runner.setTieredCompilation(tiered);
+        runner.setOutput(output);
+        runner.run();
+        return runner;
+    }
+}
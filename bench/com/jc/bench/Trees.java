@@ -0,0 +1,128 @@
+package com.jc.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.jc.Constants;
+import com.jc.node.Assignment;
+import com.jc.node.Conditional;
+import com.jc.node.Expression;
+import com.jc.node.Literal;
+import com.jc.node.Node;
+import com.jc.node.Operation;
+import com.jc.node.Print;
+import com.jc.node.Variable;
+import com.jc.node.WhileLoop;
+
+// builds syntax trees directly, so programs far larger than the parser handles comfortably can be generated
+public class Trees {
+
+    public static final String FLAT = "flat";
+    public static final String NESTED = "nested";
+
+    private static final int NESTING_DEPTH = 32;
+
+    private final HashMap<String, String> symbolTable = new HashMap<>();
+    private final HashMap<String, String> tempTable = new HashMap<>();
+    private int tempSequence = 1;
+
+    public HashMap<String, String> getSymbolTable() {
+        return symbolTable;
+    }
+
+    public HashMap<String, String> getTempTable() {
+        return tempTable;
+    }
+
+    // a flat list of statements, or the same statements spread over NESTING_DEPTH nested while loops
+    public Node build(String shape, int statements) {
+        symbolTable.put("x", Constants.T_INT);
+        if (shape.equals(FLAT)) return block(0, statements);
+
+        int perLevel = Math.max(1, statements / NESTING_DEPTH);
+        Node root = block(0, perLevel);
+        Node current = root;
+        for (int depth = 1; depth < NESTING_DEPTH; depth++) {
+            WhileLoop loop = new WhileLoop();
+            loop.test = relation(Constants.OP_LT, variable(), literal(depth));
+            Node body = block(depth * perLevel, perLevel);
+            loop.children = new ArrayList<>();
+            loop.children.add(body);
+            current.children.add(loop);
+            current = body;
+        }
+        return root;
+    }
+
+    private Node block(int first, int count) {
+        Node block = new Node();
+        block.children = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            block.children.add(statement(i));
+        }
+        return block;
+    }
+
+    private Node statement(int i) {
+        switch (i % 4) {
+            case 0: return assign(operation(Constants.OP_ADD, variable(), literal(i)));
+            case 1: return assign(operation(Constants.OP_MULT, variable(), literal(3)));
+            case 2:
+                Print print = new Print();
+                print.children = new ArrayList<>();
+                print.children.add(variable());
+                return print;
+            default:
+                Conditional conditional = new Conditional();
+                conditional.test = relation(Constants.OP_GT, variable(), literal(i));
+                Node body = new Node();
+                body.children = new ArrayList<>();
+                body.children.add(assign(operation(Constants.OP_SUB, variable(), literal(1))));
+                conditional.children = new ArrayList<>();
+                conditional.children.add(body);
+                return conditional;
+        }
+    }
+
+    private Assignment assign(Expression expression) {
+        Assignment assignment = new Assignment();
+        assignment.variable = "x";
+        assignment.children = new ArrayList<>();
+        assignment.children.add(expression);
+        return assignment;
+    }
+
+    private Operation operation(String op, Expression left, Expression right) {
+        return operation(op, Constants.T_INT, left, right);
+    }
+
+    private Operation relation(String op, Expression left, Expression right) {
+        return operation(op, Constants.T_BOOL, left, right);
+    }
+
+    private Operation operation(String op, String type, Expression left, Expression right) {
+        Operation operation = new Operation();
+        operation.operation = op;
+        operation.type = type;
+        operation.temp = "t" + tempSequence++;
+        tempTable.put(operation.temp, type);
+        operation.children = new ArrayList<>();
+        operation.children.add(left);
+        operation.children.add(right);
+        return operation;
+    }
+
+    private Variable variable() {
+        Variable variable = new Variable();
+        variable.name = "x";
+        variable.type = Constants.T_INT;
+        return variable;
+    }
+
+    private Literal literal(int value) {
+        Literal literal = new Literal();
+        literal.type = Constants.T_INT;
+        literal.value = value;
+        return literal;
+    }
+}
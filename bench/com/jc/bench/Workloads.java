@@ -0,0 +1,162 @@
+package com.jc.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class Workloads {
+
+    public static final String SAMPLE = "sample";
+    public static final String LOOPS = "loops";
+    public static final String ARITHMETIC = "arithmetic";
+    public static final String BOOLEAN = "boolean";
+    public static final String PRINT = "print";
+    public static final String PARALLEL = "parallel";
+    public static final String ARRAYS = "arrays";
+    public static final String STRINGS = "strings";
+    public static final String FIBONACCI = "fibonacci";
+
+    // writes the program to a temporary file, since the parser only reads from files
+    public static Path write(String workload, int size) throws IOException {
+        Path file = Files.createTempFile("jc-bench-" + workload + "-" + size + "-", ".jc");
+        Files.write(file, source(workload, size).getBytes(StandardCharsets.US_ASCII));
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    public static String source(String workload, int size) throws IOException {
+        switch (workload) {
+            case SAMPLE: return new String(Files.readAllBytes(Paths.get("sample.jc")), StandardCharsets.US_ASCII);
+            case LOOPS: return loops(size);
+            case ARITHMETIC: return arithmetic(size);
+            case BOOLEAN: return booleans(size);
+            case PRINT: return prints(size);
+            case PARALLEL: return parallel(size);
+            case ARRAYS: return arrays(size);
+            case STRINGS: return strings(size);
+            case FIBONACCI: return fibonacci(size);
+            default: throw new IllegalArgumentException(String.format("Unknown workload: '%s'", workload));
+        }
+    }
+
+    // three nested for loops around a small body; the outer one runs size times, the inner ones 10
+    private static String loops(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append("int sum = 0;\n");
+        for (int depth = 0; depth < 3; depth++) {
+            int count = depth == 0 ? size : 10;
+            source.append(String.format("for (int i%d = 0; i%d < %d; i%d++) {\n", depth, depth, count, depth));
+        }
+        source.append("sum = sum + i0 * i1 - i2 / 3;\n");
+        for (int depth = 0; depth < 3; depth++) {
+            source.append("}\n");
+        }
+        source.append("print(sum);\n");
+        return source.toString();
+    }
+
+    // size declarations, each one depending on the previous one
+    private static String arithmetic(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append("int x0 = 7;\n");
+        source.append("real r0 = 0.5;\n");
+        for (int i = 1; i <= size; i++) {
+            source.append(String.format("int x%d = x%d * 3 + %d - x%d / 7;\n", i, i - 1, i, i - 1));
+            source.append(String.format("real r%d = r%d * 1.5 - x%d / 2.0;\n", i, i - 1, i));
+        }
+        source.append(String.format("print(x%d);\n", size));
+        source.append(String.format("print(r%d);\n", size));
+        return source.toString();
+    }
+
+    // size declarations chaining and/or/not over comparisons
+    private static String booleans(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append("int n = 5;\n");
+        source.append("bool b0 = true;\n");
+        for (int i = 1; i <= size; i++) {
+            source.append(String.format("bool b%d = (b%d and (n < %d)) or (not b%d and (n >= %d));\n",
+                i, i - 1, i % 10, i - 1, i % 7));
+        }
+        source.append(String.format("print(b%d);\n", size));
+        return source.toString();
+    }
+
+    // a loop printing each value type size times
+    private static String prints(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append("real r = 0.25;\n");
+        source.append(String.format("for (int i = 0; i < %d; i++) {\n", size));
+        source.append("print(i);\n");
+        source.append("print(r * i);\n");
+        source.append("print(i < 100);\n");
+        source.append("print(\"line\");\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    // a parallel for summing over size thousand iterations, with a maximum and a real sum alongside
+    private static String parallel(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append("int sum = 0;\n");
+        source.append("int top = 0;\n");
+        source.append("real half = 0.0;\n");
+        source.append(String.format(
+            "parallel for (int i = 0; i < %d; i++) reduce(sum: +, top: max, half: +) {\n", size * 1000));
+        source.append("int x = i * 7 - i / 3;\n");
+        source.append("sum = sum + x;\n");
+        source.append("half = half + x / 2.0;\n");
+        source.append("if (x > top) {\n");
+        source.append("top = x;\n");
+        source.append("}\n");
+        source.append("}\n");
+        source.append("print(sum);\n");
+        source.append("print(top);\n");
+        source.append("print(half);\n");
+        return source.toString();
+    }
+
+    // two real arrays of size hundred elements filled by a loop, then combined with the bulk builtins
+    private static String arrays(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append(String.format("int n = %d;\n", size * 100));
+        source.append("real[] x = new real[n];\n");
+        source.append("real[] y = fill(new real[n], 0.5);\n");
+        source.append("for (int i = 0; i < n; i++) {\n");
+        source.append("x[i] = i * 0.25;\n");
+        source.append("}\n");
+        source.append("real[] z = x * y + x;\n");
+        source.append("print(sum(z));\n");
+        source.append("print(max(z) - min(z));\n");
+        return source.toString();
+    }
+
+    // a log line built by size hundred concatenations in a loop, compared once and printed once
+    private static String strings(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append(String.format("int n = %d;\n", size * 100));
+        source.append("str line = \"log:\";\n");
+        source.append("for (int i = 0; i < n; i++) {\n");
+        source.append("line = line + \" key=\" + \"value\";\n");
+        source.append("}\n");
+        source.append("print(line == \"log:\");\n");
+        source.append("print(line);\n");
+        return source.toString();
+    }
+
+    // the naive recursive Fibonacci of 12 + size / 100, which makes a call for every one it adds; a function
+    // that calls itself is never inlined, so every call goes through the call stack
+    private static String fibonacci(int size) {
+        StringBuilder source = new StringBuilder();
+        source.append("int fib(int n) {\n");
+        source.append("if (n < 2) {\n");
+        source.append("return n;\n");
+        source.append("}\n");
+        source.append("return fib(n - 1) + fib(n - 2);\n");
+        source.append("}\n");
+        source.append(String.format("print(fib(%d));\n", 12 + size / 100));
+        return source.toString();
+    }
+}
@@ -0,0 +1,3 @@
+#!/bin/bash
+
+java -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -XX:-UsePerfData -cp ./bin/classes:tools/java-cup-11b.jar com.jc.daemon.Client "$@"
@@ -1,5 +1,3 @@
 #!/bin/bash
 
-FILE=$1
-
-java -cp ./bin/classes:tools/java-cup-11b.jar com.jc.Main $FILE
\ No newline at end of file
+java -cp ./bin/classes:tools/java-cup-11b.jar com.jc.Main "$@"
\ No newline at end of file
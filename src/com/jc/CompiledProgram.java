@@ -0,0 +1,67 @@
+package com.jc;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import com.jc.interpreter.CompiledLoops;
+import com.jc.interpreter.Limits;
+import com.jc.interpreter.Program;
+
+// an immutable compiled script that any number of threads can run at once
+public class CompiledProgram {
+    private static final int POOL_SIZE = 64;
+
+    private final Program program;
+    private final CompiledLoops loops;
+    private final int compileThreshold;
+    private final ForkJoinPool forkJoinPool;
+    private final Limits limits;
+    private final BlockingQueue<Execution> pool;
+
+    CompiledProgram(
+        Program program, boolean tieredCompilation, int compileThreshold, ForkJoinPool forkJoinPool, Limits limits) {
+        this.program = program;
+        this.loops = tieredCompilation ? new CompiledLoops(program) : null;
+        this.compileThreshold = compileThreshold;
+        this.forkJoinPool = forkJoinPool;
+        this.limits = limits;
+        this.pool = new ArrayBlockingQueue<>(POOL_SIZE);
+    }
+
+    public Program getProgram() {
+        return program;
+    }
+
+    // a private execution state; loops compiled by any execution are shared with all the others
+    public Execution newExecution() {
+        return new Execution(program, loops, compileThreshold, forkJoinPool, limits);
+    }
+
+    public void run(OutputStream out) {
+        run(Channels.newChannel(out));
+    }
+
+    // runs on a pooled execution state, so repeated runs allocate no frames or output buffers
+    public void run(WritableByteChannel out) {
+        Execution execution = pool.poll();
+        if (execution == null) execution = newExecution();
+
+        try {
+            execution.run(out);
+        } finally {
+            pool.offer(execution);
+        }
+    }
+
+    // like run, but in time slices on the scheduler's workers; the future completes when the script ends
+    public CompletableFuture<Void> submit(Scheduler scheduler, WritableByteChannel out) {
+        Execution polled = pool.poll();
+        Execution execution = polled != null ? polled : newExecution();
+        return scheduler.submit(execution, out).whenComplete((result, error) -> pool.offer(execution));
+    }
+}
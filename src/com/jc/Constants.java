@@ -5,6 +5,9 @@ public class Constants {
     public static final String T_INT = "int";
     public static final String T_BOOL = "bool";
     public static final String T_STR = "str";
+    public static final String T_INT_ARRAY = "int[]";
+    public static final String T_REAL_ARRAY = "real[]";
+    public static final String T_BOOL_ARRAY = "bool[]";
 
     public static final String OP_ADD = "+";
     public static final String OP_SUB = "-";
@@ -22,4 +25,11 @@ public class Constants {
     public static final String OP_LTE = "<=";
     public static final String OP_INC = "++";
     public static final String OP_DEC = "--";
+    public static final String OP_MIN = "min";
+    public static final String OP_MAX = "max";
+    public static final String OP_INDEX = "[]";
+    public static final String OP_NEW = "new";
+    public static final String OP_LEN = "len";
+    public static final String OP_SUM = "sum";
+    public static final String OP_FILL = "fill";
 }
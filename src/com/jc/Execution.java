@@ -0,0 +1,66 @@
+package com.jc;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ForkJoinPool;
+
+import com.jc.interpreter.CompiledLoops;
+import com.jc.interpreter.FlushPolicy;
+import com.jc.interpreter.Frame;
+import com.jc.interpreter.Limits;
+import com.jc.interpreter.Output;
+import com.jc.interpreter.Program;
+import com.jc.interpreter.Runner;
+
+// the mutable state of one run: variables and an output buffer; use it from one thread at a time
+public class Execution {
+    private final Runner runner;
+    private final Output output;
+
+    Execution(Program program, CompiledLoops loops, int compileThreshold, ForkJoinPool pool, Limits limits) {
+        runner = new Runner(program, loops);
+        if (compileThreshold > 0) runner.setCompileThreshold(compileThreshold);
+        runner.setPool(pool);
+        runner.setLimits(limits);
+
+        output = new Output(null, FlushPolicy.SIZE);
+        runner.setOutput(output);
+    }
+
+    public void run(OutputStream out) {
+        run(Channels.newChannel(out));
+    }
+
+    // replaces the limits the engine set for later runs; null removes them
+    public void setLimits(Limits limits) {
+        runner.setLimits(limits);
+    }
+
+    // starts from cleared variables and writes everything printed to out
+    public void run(WritableByteChannel out) {
+        start(out);
+        resume(0);
+    }
+
+    void start(WritableByteChannel out) {
+        runner.reset();
+        output.setChannel(out);
+    }
+
+    // runs one time slice and returns true once the script has ended or failed, when out is released
+    boolean resume(long sliceNanos) {
+        boolean finished = true;
+        try {
+            finished = runner.runSlice(sliceNanos);
+            return finished;
+        } finally {
+            if (finished) output.setChannel(null);
+        }
+    }
+
+    // the variables as the last run left them
+    public Frame getFrame() {
+        return runner.getFrame();
+    }
+}
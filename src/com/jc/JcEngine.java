@@ -0,0 +1,101 @@
+package com.jc;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.FunctionCode;
+import com.jc.interpreter.Limits;
+import com.jc.interpreter.Lowering;
+import com.jc.interpreter.Program;
+import com.jc.interpreter.Slots;
+import com.jc.interpreter.ThreeAddressCodeGenerator;
+import com.jc.node.Node;
+import com.jc.optimizer.Optimizer;
+import com.jc.telemetry.CodeGenerationEvent;
+import com.jc.telemetry.ParseEvent;
+import com.jc.telemetry.Telemetry;
+
+// compiles scripts into CompiledPrograms; configure it first, then compile from any thread
+public class JcEngine {
+    private int optimizationLevel = 1;
+    private boolean tieredCompilation = true;
+    private int compileThreshold = -1;
+    private PrintStream optimizationReport;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private Limits limits;
+
+    public void setOptimizationLevel(int optimizationLevel) {
+        this.optimizationLevel = optimizationLevel;
+    }
+
+    public void setTieredCompilation(boolean tieredCompilation) {
+        this.tieredCompilation = tieredCompilation;
+    }
+
+    public void setCompileThreshold(int compileThreshold) {
+        this.compileThreshold = compileThreshold;
+    }
+
+    // threads a parallel for runs on; 1 runs it on the thread running the script, 0 uses the common pool
+    public void setParallelism(int threads) {
+        if (threads == 0) pool = ForkJoinPool.commonPool();
+        else pool = threads == 1 ? null : new ForkJoinPool(threads);
+    }
+
+    // limits for every execution of the programs compiled afterwards
+    public void setLimits(Limits limits) {
+        this.limits = limits;
+    }
+
+    public void setOptimizationReport(PrintStream optimizationReport) {
+        this.optimizationReport = optimizationReport;
+    }
+
+    public CompiledProgram compile(Path file) throws Exception {
+        return compile(Source.map(file));
+    }
+
+    public CompiledProgram compile(String source) throws Exception {
+        return compile((CharSequence) source);
+    }
+
+    // wraps an already compiled program, e.g. one loaded from the ProgramCache
+    public CompiledProgram load(Program program) {
+        return new CompiledProgram(program, tieredCompilation, compileThreshold, pool, limits);
+    }
+
+    private CompiledProgram compile(CharSequence source) throws Exception {
+        ParseEvent parsing = Telemetry.beginParse();
+        Parser parser = Parser.fromSource(source);
+        parser.parse();
+        Node tree = parser.getTree();
+        HashMap<String, String> symbolTable = parser.getSymbolTable();
+        HashMap<String, String> tempTable = parser.getTempTable();
+        Telemetry.endParse(parsing, source.length(), symbolTable.size(), tempTable.size());
+
+        CodeGenerationEvent generating = Telemetry.beginCodeGeneration();
+        ThreeAddressCodeGenerator codeGenerator = new ThreeAddressCodeGenerator(symbolTable, tempTable);
+        // -O0 keeps every call, so the code matches the source
+        codeGenerator.setInlineLimit(optimizationLevel >= 1 ? ThreeAddressCodeGenerator.DEFAULT_INLINE_LIMIT : 0);
+        List<Command> code = codeGenerator.generate(tree);
+        List<FunctionCode> functions = codeGenerator.getFunctions();
+        Telemetry.endCodeGeneration(generating, code.size(), symbolTable.size(), tempTable.size());
+
+        Optimizer optimizer = new Optimizer(optimizationLevel, tempTable);
+        code = optimizer.optimize(code);
+        for (FunctionCode function : functions) {
+            function.code = optimizer.optimize(function.code);
+        }
+        Slots slots = optimizer.allocateSlots(code, functions, symbolTable, tempTable);
+        optimizer.setInlinedCalls(codeGenerator.getInlinedCalls());
+        if (optimizationReport != null) {
+            optimizationReport.print(optimizer.report());
+        }
+
+        return load(new Lowering(slots).lower(code, functions));
+    }
+}
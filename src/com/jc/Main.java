@@ -1,30 +1,155 @@
 package com.jc;
 
-import java.util.HashMap;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
-import com.jc.interpreter.Command;
+import com.jc.daemon.Daemon;
+import com.jc.daemon.Protocol;
+import com.jc.interpreter.AotCompiler;
+import com.jc.interpreter.FlushPolicy;
+import com.jc.interpreter.Limits;
+import com.jc.interpreter.Output;
+import com.jc.interpreter.Profiler;
+import com.jc.interpreter.Program;
+import com.jc.interpreter.ProgramCache;
 import com.jc.interpreter.Runner;
-import com.jc.interpreter.ThreeAddressCodeGenerator;
-import com.jc.node.*;
+import com.jc.telemetry.Telemetry;
 
 public class Main {
 
     public static void main(String[] args) throws Exception {
-        if (args.length < 1) {
-            throw new Exception("You must pass a file to compile. Use the format 'jc <file>'");
+        String filename = null;
+        boolean tiered = true;
+        int compileThreshold = -1;
+        int optimizationLevel = 1;
+        boolean optimizationReport = false;
+        FlushPolicy flushPolicy = FlushPolicy.AUTO;
+        boolean profile = false;
+        String profileFile = null;
+        Path cacheDirectory = Paths.get(System.getProperty("user.home"), ".cache", "jc");
+        boolean daemon = false;
+        Path socket = Protocol.defaultSocket();
+        int threads = 0;
+        int workers = Runtime.getRuntime().availableProcessors();
+        Limits limits = new Limits();
+        boolean telemetry = false;
+        String recordingFile = null;
+        String jarFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--no-jit")) tiered = false;
+            else if (arg.startsWith("--jit-threshold=")) compileThreshold = Integer.parseInt(arg.substring(16));
+            else if (arg.matches("-O[0-2]")) optimizationLevel = arg.charAt(2) - '0';
+            else if (arg.equals("--opt-report")) optimizationReport = true;
+            else if (arg.startsWith("--flush=")) flushPolicy = FlushPolicy.valueOf(arg.substring(8).toUpperCase());
+            else if (arg.equals("--profile")) profile = true;
+            else if (arg.startsWith("--profile=")) {
+                profile = true;
+                profileFile = arg.substring(10);
+            }
+            else if (arg.equals("--telemetry")) telemetry = true;
+            else if (arg.startsWith("--telemetry=")) {
+                telemetry = true;
+                recordingFile = arg.substring(12);
+            }
+            else if (arg.equals("--no-cache")) cacheDirectory = null;
+            else if (arg.startsWith("--cache-dir=")) cacheDirectory = Paths.get(arg.substring(12));
+            else if (arg.equals("--daemon")) daemon = true;
+            else if (arg.startsWith("--socket=")) socket = Paths.get(arg.substring(9));
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--workers=")) workers = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--max-instructions=")) limits.setMaxInstructions(Long.parseLong(arg.substring(19)));
+            else if (arg.startsWith("--timeout=")) limits.setTimeout(Long.parseLong(arg.substring(10)), TimeUnit.MILLISECONDS);
+            else if (arg.startsWith("--max-memory=")) limits.setMaxMemory(Long.parseLong(arg.substring(13)));
+            else if (arg.startsWith("--max-call-depth=")) limits.setMaxCallDepth(Integer.parseInt(arg.substring(17)));
+            else if (arg.startsWith("--emit-jar=")) jarFile = arg.substring(11);
+            else if (arg.equals("--emit-jar")) {
+                if (i + 1 == args.length) {
+                    throw new Exception("Missing jar file. Use the format 'jc --emit-jar <jar> <file>'");
+                }
+                jarFile = args[++i];
+            }
+            else if (arg.startsWith("-")) throw new Exception(String.format("Unknown option: '%s'", arg));
+            else filename = arg;
+        }
+
+        if (telemetry) {
+            Telemetry.enable();
+            if (recordingFile != null) Telemetry.record(Paths.get(recordingFile));
+        }
+
+        if (daemon) {
+            JcEngine engine = new JcEngine();
+            engine.setOptimizationLevel(optimizationLevel);
+            engine.setTieredCompilation(tiered);
+            engine.setCompileThreshold(compileThreshold);
+            engine.setParallelism(threads);
+            engine.setLimits(limits);
+            try (Scheduler scheduler = new Scheduler(workers)) {
+                new Daemon(socket, engine, scheduler, System.err).serve();
+            }
+            return;
+        }
+
+        if (filename == null) {
+            throw new Exception("You must pass a file to compile. Use the format 'jc [options] <file>'");
+        }
+
+        if (jarFile != null) {
+            JcEngine engine = new JcEngine();
+            engine.setOptimizationLevel(optimizationLevel);
+            if (optimizationReport) engine.setOptimizationReport(System.err);
+
+            AotCompiler compiler = new AotCompiler();
+            compiler.setFlushPolicy(flushPolicy);
+            compiler.writeJar(engine.compile(Paths.get(filename)).getProgram(), Paths.get(jarFile));
+            return;
+        }
+
+        Program program = null;
+        ProgramCache cache = null;
+        byte[] hash = null;
+        if (cacheDirectory != null) {
+            cache = new ProgramCache(cacheDirectory);
+            hash = ProgramCache.hash(Files.readAllBytes(Paths.get(filename)), optimizationLevel);
+            if (!optimizationReport) program = cache.load(hash);
         }
 
-        Parser parser = new Parser(args[0]);
-        parser.parse();
-        Node tree = parser.getTree();
-        HashMap<String, String> symbolTable = parser.getSymbolTable();
-        HashMap<String, String> tempTable = parser.getTempTable();
-        
-        ThreeAddressCodeGenerator codeGenerator = new ThreeAddressCodeGenerator();
-        List<Command> code = codeGenerator.generate(tree);
+        if (program == null) {
+            JcEngine engine = new JcEngine();
+            engine.setOptimizationLevel(optimizationLevel);
+            if (optimizationReport) engine.setOptimizationReport(System.err);
+
+            program = engine.compile(Paths.get(filename)).getProgram();
+            if (cache != null) cache.store(hash, program);
+        }
 
-        Runner runner = new Runner(code, symbolTable, tempTable);
-        runner.run();
+        Runner runner = new Runner(program);
+        runner.setTieredCompilation(tiered);
+        Output output = Output.standard(flushPolicy);
+        output.flushOnExit();
+        runner.setOutput(output);
+        if (compileThreshold > 0) runner.setCompileThreshold(compileThreshold);
+        if (threads > 0) runner.setPool(threads == 1 ? null : new ForkJoinPool(threads));
+        runner.setLimits(limits);
+
+        Profiler profiler = null;
+        if (profile) {
+            profiler = new Profiler(runner.getProgram());
+            runner.setProfiler(profiler);
+        }
+
+        try {
+            runner.run();
+        } finally {
+            if (profiler != null) {
+                profiler.report(System.err);
+                profiler.write(Paths.get(profileFile != null ? profileFile : filename + ".prof"));
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -16,18 +16,18 @@ public class MainDebug {
         Node tree = parser.getTree();
         HashMap<String, String> symbolTable = parser.getSymbolTable();
         HashMap<String, String> tempTable = parser.getTempTable();
-        ThreeAddressCodeGenerator codeGenerator = new ThreeAddressCodeGenerator();
+        ThreeAddressCodeGenerator codeGenerator = new ThreeAddressCodeGenerator(symbolTable, tempTable);
         List<Command> code = codeGenerator.generate(tree);
 
         String layout = "%-5s %-6s %-6s %-6s %-6s\n";
         System.out.format(layout, "label", "op", "right", "left", "dest");
         for (Command command : code) {
             System.out.format(layout, 
-                (command.label != null) ? command.label : "", 
+                (command.label != 0) ? "L" + command.label : "", 
                 command.op, 
                 command.left, 
                 command.right, 
-                command.result);
+                (command.target != 0) ? "L" + command.target : command.result);
         }
 
         Runner runner = new Runner(code, symbolTable, tempTable);
@@ -0,0 +1,76 @@
+package com.jc;
+
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// time-slices many executions over a fixed set of worker threads: each runs until a back-edge after its slice,
+// suspends there and goes to the back of the queue, so a long or runaway script shares a worker instead of
+// holding it. Slices are wall-clock time, so cheap and expensive instructions are treated alike
+public class Scheduler implements AutoCloseable {
+    public static final long DEFAULT_SLICE_MILLIS = 10;
+
+    private final ExecutorService workers;
+    private final long sliceNanos;
+
+    public Scheduler(int threads) {
+        this(threads, DEFAULT_SLICE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public Scheduler(int threads, long slice, TimeUnit unit) {
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "jc-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sliceNanos = unit.toNanos(slice);
+    }
+
+    // starts execution from cleared variables; it must not be used elsewhere until the future completes
+    public CompletableFuture<Void> submit(Execution execution, WritableByteChannel out) {
+        Task task = new Task(execution);
+        execution.start(out);
+        workers.execute(task);
+        return task.done;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private final class Task implements Runnable {
+        private final Execution execution;
+        private final CompletableFuture<Void> done;
+
+        Task(Execution execution) {
+            this.execution = execution;
+            this.done = new CompletableFuture<>();
+        }
+
+        @Override
+        public void run() {
+            boolean finished;
+            try {
+                finished = execution.resume(sliceNanos);
+            } catch (RuntimeException | Error e) {
+                done.completeExceptionally(e);
+                return;
+            }
+            if (finished) {
+                done.complete(null);
+                return;
+            }
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException e) {
+                done.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.jc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class Source {
+
+    // maps the file and returns its text; plain ASCII is read in place, anything else is decoded once as UTF-8
+    public static CharSequence map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Source file too large: '%s'", path));
+            }
+
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (isAscii(bytes)) return new AsciiText(bytes);
+            return StandardCharsets.UTF_8.decode(bytes);
+        }
+    }
+
+    public static Reader reader(CharSequence text) {
+        return new TextReader(text);
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        int size = bytes.limit();
+        int i = 0;
+        for (; i + 8 <= size; i += 8) {
+            if ((bytes.getLong(i) & 0x8080808080808080L) != 0) return false;
+        }
+        for (; i < size; i++) {
+            if (bytes.get(i) < 0) return false;
+        }
+        return true;
+    }
+
+    private static class AsciiText implements CharSequence {
+        private final ByteBuffer bytes;
+
+        AsciiText(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        public int length() {
+            return bytes.limit();
+        }
+
+        public char charAt(int index) {
+            return (char) bytes.get(index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiText(bytes.slice(start, end - start));
+        }
+
+        public String toString() {
+            byte[] copy = new byte[bytes.limit()];
+            bytes.get(0, copy);
+            return new String(copy, StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static class TextReader extends Reader {
+        private final CharSequence text;
+        private int position;
+        private byte[] chunk = new byte[0];
+
+        TextReader(CharSequence text) {
+            this.text = text;
+        }
+
+        public int read(char[] buffer, int offset, int length) {
+            int count = Math.min(length, text.length() - position);
+            if (count <= 0) return length == 0 ? 0 : -1;
+
+            if (text instanceof AsciiText) {
+                if (chunk.length < count) chunk = new byte[count];
+                ((AsciiText) text).bytes.get(position, chunk, 0, count);
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = (char) chunk[i];
+                }
+            }
+            else if (text instanceof CharBuffer) {
+                ((CharBuffer) text).get(position, buffer, offset, count);
+            }
+            else {
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = text.charAt(position + i);
+                }
+            }
+            position += count;
+            return count;
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.jc.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jc.bytecode.JvmOpcodes.*;
+
+public class ClassWriter {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int JAVA_8 = 52;
+
+    private ConstantPool pool;
+    private int thisClass;
+    private int superClass;
+    private List<Integer> interfaces;
+    private List<byte[]> methods;
+    private String superName;
+
+    public ClassWriter(String name, String superName, String... interfaceNames) {
+        this.pool = new ConstantPool();
+        this.thisClass = pool.classRef(name);
+        this.superClass = pool.classRef(superName);
+        this.superName = superName;
+        this.interfaces = new ArrayList<>();
+        this.methods = new ArrayList<>();
+        for (String interfaceName : interfaceNames) {
+            interfaces.add(pool.classRef(interfaceName));
+        }
+    }
+
+    public ConstantPool pool() {
+        return pool;
+    }
+
+    public Code newCode() {
+        return new Code(pool);
+    }
+
+    public void addDefaultConstructor() {
+        Code code = newCode();
+        code.local(ALOAD, 0);
+        code.invoke(INVOKESPECIAL, superName, "<init>", "()V");
+        code.op(RETURN);
+        code.setMaxStack(1);
+        code.setMaxLocals(1);
+        addMethod(ACC_PUBLIC, "<init>", "()V", code);
+    }
+
+    public void addMethod(int access, String name, String descriptor, Code code) {
+        ByteArrayOutputStream method = new ByteArrayOutputStream();
+        write2(method, access);
+        write2(method, pool.utf8(name));
+        write2(method, pool.utf8(descriptor));
+        write2(method, 1);
+        byte[] attribute = code.toAttribute();
+        method.write(attribute, 0, attribute.length);
+        methods.add(method.toByteArray());
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write2(out, MAGIC >>> 16);
+        write2(out, MAGIC & 0xFFFF);
+        write2(out, 0);
+        write2(out, JAVA_8);
+
+        byte[] constants = pool.toByteArray();
+        write2(out, pool.size());
+        out.write(constants, 0, constants.length);
+
+        write2(out, ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        write2(out, thisClass);
+        write2(out, superClass);
+        write2(out, interfaces.size());
+        for (int index : interfaces) {
+            write2(out, index);
+        }
+        write2(out, 0);
+        write2(out, methods.size());
+        for (byte[] method : methods) {
+            out.write(method, 0, method.length);
+        }
+        write2(out, 0);
+        return out.toByteArray();
+    }
+
+    private static void write2(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,244 @@
+package com.jc.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static com.jc.bytecode.JvmOpcodes.*;
+
+public class Code {
+    public static final int ITEM_TOP = 0;
+    public static final int ITEM_INTEGER = 1;
+    public static final int ITEM_DOUBLE = 3;
+    public static final int ITEM_OBJECT = 7;
+
+    private static final int MAX_CODE_LENGTH = 0xFFFF;
+
+    private ConstantPool pool;
+    private ByteArrayOutputStream bytes;
+    private List<int[]> fixups;
+    private List<Label> fixupLabels;
+    private TreeSet<Integer> frames;
+    private List<int[]> frameLocals;
+    private int maxStack;
+    private int maxLocals;
+
+    public Code(ConstantPool pool) {
+        this.pool = pool;
+        this.bytes = new ByteArrayOutputStream();
+        this.fixups = new ArrayList<>();
+        this.fixupLabels = new ArrayList<>();
+        this.frames = new TreeSet<>();
+        this.frameLocals = new ArrayList<>();
+    }
+
+    public ConstantPool pool() {
+        return pool;
+    }
+
+    public int offset() {
+        return bytes.size();
+    }
+
+    public void setMaxStack(int maxStack) {
+        this.maxStack = maxStack;
+    }
+
+    public void setMaxLocals(int maxLocals) {
+        this.maxLocals = maxLocals;
+    }
+
+    // every branch target shares one set of locals; they are all initialized
+    // before the first label, and the operand stack is empty at each label
+    public void addFrameLocal(int item, String className) {
+        frameLocals.add(new int[] { item, item == ITEM_OBJECT ? pool.classRef(className) : 0 });
+    }
+
+    public void op(int opcode) {
+        bytes.write(opcode);
+    }
+
+    public void op(int opcode, int operand) {
+        bytes.write(opcode);
+        u1(operand);
+    }
+
+    public void u1(int value) {
+        bytes.write(value);
+    }
+
+    public void u2(int value) {
+        bytes.write(value >>> 8);
+        bytes.write(value);
+    }
+
+    public void mark(Label label) {
+        label.offset = offset();
+        frames.add(label.offset);
+    }
+
+    public void jump(int opcode, Label label) {
+        fixups.add(new int[] { offset(), offset() + 1 });
+        fixupLabels.add(label);
+        op(opcode);
+        u2(0);
+    }
+
+    public void iconst(int value) {
+        if (value >= -1 && value <= 5) op(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) op(BIPUSH, value & 0xFF);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(SIPUSH);
+            u2(value & 0xFFFF);
+        }
+        else ldc(pool.integer(value));
+    }
+
+    public void dconst(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L) op(DCONST_0);
+        else if (value == 1.0) op(DCONST_1);
+        else {
+            op(LDC2_W);
+            u2(pool.doubleValue(value));
+        }
+    }
+
+    public void sconst(String value) {
+        ldc(pool.string(value));
+    }
+
+    private void ldc(int index) {
+        if (index <= 0xFF) op(LDC, index);
+        else {
+            op(LDC_W);
+            u2(index);
+        }
+    }
+
+    public void local(int opcode, int index) {
+        if (index <= 0xFF) op(opcode, index);
+        else {
+            op(WIDE);
+            op(opcode);
+            u2(index);
+        }
+    }
+
+    public void field(int opcode, String owner, String name, String descriptor) {
+        op(opcode);
+        u2(pool.fieldRef(owner, name, descriptor));
+    }
+
+    public void invoke(int opcode, String owner, String name, String descriptor) {
+        op(opcode);
+        if (opcode == INVOKEINTERFACE) {
+            u2(pool.interfaceMethodRef(owner, name, descriptor));
+            u1(argumentSlots(descriptor) + 1);
+            u1(0);
+        }
+        else {
+            u2(pool.methodRef(owner, name, descriptor));
+        }
+    }
+
+    public void type(int opcode, String className) {
+        op(opcode);
+        u2(pool.classRef(className));
+    }
+
+    public byte[] toAttribute() {
+        byte[] code = bytes.toByteArray();
+        if (code.length > MAX_CODE_LENGTH) {
+            throw new IllegalStateException("Method too large: " + code.length + " bytes");
+        }
+
+        for (int i = 0; i < fixups.size(); i++) {
+            int[] fixup = fixups.get(i);
+            Label label = fixupLabels.get(i);
+            if (!label.isMarked()) {
+                throw new IllegalStateException("Unmarked label");
+            }
+            int delta = label.offset - fixup[0];
+            if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+                throw new IllegalStateException("Branch offset out of range: " + delta);
+            }
+            code[fixup[1]] = (byte) (delta >>> 8);
+            code[fixup[1] + 1] = (byte) delta;
+        }
+
+        List<Integer> offsets = new ArrayList<>(frames.headSet(code.length));
+        ByteArrayOutputStream stackMap = new ByteArrayOutputStream();
+        int previous = -1;
+        for (int frame : offsets) {
+            stackMap.write(255);
+            write2(stackMap, previous < 0 ? frame : frame - previous - 1);
+            write2(stackMap, frameLocals.size());
+            for (int[] local : frameLocals) {
+                stackMap.write(local[0]);
+                if (local[0] == ITEM_OBJECT) write2(stackMap, local[1]);
+            }
+            write2(stackMap, 0);
+            previous = frame;
+        }
+
+        ByteArrayOutputStream attribute = new ByteArrayOutputStream();
+        write2(attribute, pool.utf8("Code"));
+        byte[] stackMapBytes = stackMap.toByteArray();
+        int stackMapLength = offsets.isEmpty() ? 0 : 8 + stackMapBytes.length;
+        write4(attribute, 12 + code.length + stackMapLength);
+        write2(attribute, maxStack);
+        write2(attribute, maxLocals);
+        write4(attribute, code.length);
+        attribute.write(code, 0, code.length);
+        write2(attribute, 0);
+        if (offsets.isEmpty()) {
+            write2(attribute, 0);
+        }
+        else {
+            write2(attribute, 1);
+            write2(attribute, pool.utf8("StackMapTable"));
+            write4(attribute, 2 + stackMapBytes.length);
+            write2(attribute, offsets.size());
+            attribute.write(stackMapBytes, 0, stackMapBytes.length);
+        }
+        return attribute.toByteArray();
+    }
+
+    private static int argumentSlots(String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                slots += 2;
+                i++;
+            }
+            else if (c == 'L') {
+                slots++;
+                i = descriptor.indexOf(';', i) + 1;
+            }
+            else if (c == '[') {
+                while (descriptor.charAt(i) == '[') i++;
+                if (descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i) + 1;
+                else i++;
+                slots++;
+            }
+            else {
+                slots++;
+                i++;
+            }
+        }
+        return slots;
+    }
+
+    private static void write2(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void write4(ByteArrayOutputStream out, int value) {
+        write2(out, value >>> 16);
+        write2(out, value & 0xFFFF);
+    }
+}
@@ -0,0 +1,154 @@
+package com.jc.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+public class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+
+    private ByteArrayOutputStream bytes;
+    private DataOutputStream out;
+    private HashMap<String, Integer> entries;
+    private int count;
+
+    public ConstantPool() {
+        bytes = new ByteArrayOutputStream();
+        out = new DataOutputStream(bytes);
+        entries = new HashMap<>();
+        count = 1;
+    }
+
+    public int utf8(String value) {
+        String key = "U" + value;
+        Integer index = entries.get(key);
+        if (index != null) return index;
+
+        try {
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return add(key, 1);
+    }
+
+    public int integer(int value) {
+        String key = "I" + value;
+        Integer index = entries.get(key);
+        if (index != null) return index;
+
+        write(INTEGER);
+        writeInt(value);
+        return add(key, 1);
+    }
+
+    public int doubleValue(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        String key = "D" + bits;
+        Integer index = entries.get(key);
+        if (index != null) return index;
+
+        write(DOUBLE);
+        writeInt((int) (bits >>> 32));
+        writeInt((int) bits);
+        return add(key, 2);
+    }
+
+    public int classRef(String internalName) {
+        return reference("C", CLASS, utf8(internalName));
+    }
+
+    public int string(String value) {
+        return reference("S", STRING, utf8(value));
+    }
+
+    public int nameAndType(String name, String descriptor) {
+        String key = "N" + name + " " + descriptor;
+        Integer index = entries.get(key);
+        if (index != null) return index;
+
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        write(NAME_AND_TYPE);
+        writeShort(nameIndex);
+        writeShort(descriptorIndex);
+        return add(key, 1);
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return memberRef("F", FIELD_REF, owner, name, descriptor);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return memberRef("M", METHOD_REF, owner, name, descriptor);
+    }
+
+    public int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef("IM", INTERFACE_METHOD_REF, owner, name, descriptor);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    private int reference(String prefix, int tag, int utf8Index) {
+        String key = prefix + utf8Index;
+        Integer index = entries.get(key);
+        if (index != null) return index;
+
+        write(tag);
+        writeShort(utf8Index);
+        return add(key, 1);
+    }
+
+    private int memberRef(String prefix, int tag, String owner, String name, String descriptor) {
+        String key = prefix + owner + "." + name + descriptor;
+        Integer index = entries.get(key);
+        if (index != null) return index;
+
+        int classIndex = classRef(owner);
+        int nameAndTypeIndex = nameAndType(name, descriptor);
+        write(tag);
+        writeShort(classIndex);
+        writeShort(nameAndTypeIndex);
+        return add(key, 1);
+    }
+
+    private int add(String key, int width) {
+        int index = count;
+        entries.put(key, index);
+        count += width;
+        if (count > 0xFFFF) {
+            throw new IllegalStateException("Constant pool overflow");
+        }
+        return index;
+    }
+
+    private void write(int value) {
+        bytes.write(value);
+    }
+
+    private void writeShort(int value) {
+        bytes.write(value >>> 8);
+        bytes.write(value);
+    }
+
+    private void writeInt(int value) {
+        writeShort(value >>> 16);
+        writeShort(value & 0xFFFF);
+    }
+}
@@ -0,0 +1,9 @@
+package com.jc.bytecode;
+
+public class Label {
+    int offset = -1;
+
+    public boolean isMarked() {
+        return offset >= 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.jc.daemon;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.jc.Main;
+
+// sends a script to the jc daemon and copies its output here; runs the script itself when no daemon is up
+public class Client {
+
+    public static void main(String[] args) throws Exception {
+        Path socket = Protocol.defaultSocket();
+        boolean time = false;
+        String filename = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--socket=")) socket = Paths.get(arg.substring(9));
+            else if (arg.equals("--time")) time = true;
+            else if (arg.startsWith("-")) throw new Exception(String.format("Unknown option: '%s'", arg));
+            else filename = arg;
+        }
+
+        if (filename == null) {
+            throw new Exception("You must pass a file to run. Use the format 'jcc [options] <file>'");
+        }
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            Main.main(new String[] { filename });
+            return;
+        }
+
+        long start = System.nanoTime();
+        int status;
+        try (channel) {
+            Protocol.writeRequest(channel, Paths.get(filename).toAbsolutePath().normalize());
+            status = copyReply(channel, time, start);
+        }
+        System.exit(status);
+    }
+
+    private static int copyReply(SocketChannel channel, boolean time, long start) throws IOException {
+        FileChannel out = new FileOutputStream(FileDescriptor.out).getChannel();
+        while (true) {
+            ByteBuffer header = Protocol.readFully(channel, Protocol.HEADER_SIZE);
+            byte type = header.get();
+            ByteBuffer payload = Protocol.readFully(channel, header.getInt());
+
+            if (type == Protocol.OUT) {
+                try {
+                    while (payload.hasRemaining()) out.write(payload);
+                } catch (IOException e) {
+                    // whoever reads our output went away; hanging up stops the script on the daemon
+                    return 1;
+                }
+            }
+            else if (type == Protocol.ERR) {
+                System.err.println(StandardCharsets.UTF_8.decode(payload));
+            }
+            else if (type == Protocol.DONE) {
+                int status = payload.getInt();
+                long compileNanos = payload.getLong();
+                long runNanos = payload.getLong();
+                boolean cached = payload.get() != 0;
+                if (time) {
+                    System.err.printf("%s: compile %.2f ms, run %.2f ms, round trip %.2f ms%n",
+                        cached ? "cached" : "compiled", compileNanos / 1e6, runNanos / 1e6, (System.nanoTime() - start) / 1e6);
+                }
+                return status;
+            }
+        }
+    }
+}
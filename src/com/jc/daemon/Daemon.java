@@ -0,0 +1,178 @@
+package com.jc.daemon;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.jc.CompiledProgram;
+import com.jc.JcEngine;
+import com.jc.Scheduler;
+
+// stays resident and runs scripts for clients on a Unix domain socket, so each run skips JVM startup,
+// parser table setup and a cold interpreter; compiled programs are kept until their file changes
+public class Daemon {
+    private final Path socket;
+    private final JcEngine engine;
+    private final Scheduler scheduler;
+    private final PrintStream log;
+    private final ConcurrentHashMap<Path, Entry> programs;
+
+    // scripts run in time slices on the scheduler's workers, so a runaway one can't starve the others
+    public Daemon(Path socket, JcEngine engine, Scheduler scheduler, PrintStream log) {
+        this.socket = socket;
+        this.engine = engine;
+        this.scheduler = scheduler;
+        this.log = log;
+        this.programs = new ConcurrentHashMap<>();
+    }
+
+    public void serve() throws IOException {
+        claimSocket();
+
+        ExecutorService executor = Executors.newCachedThreadPool(threadFactory());
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(this::removeSocket));
+            log.printf("jc daemon listening on %s%n", socket);
+
+            while (true) {
+                SocketChannel client = server.accept();
+                executor.execute(() -> handle(client));
+            }
+        } finally {
+            executor.shutdownNow();
+            removeSocket();
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            Path script = Protocol.readRequest(client);
+            long start = System.nanoTime();
+            Entry entry;
+            boolean cached;
+            try {
+                FileTime modified = Files.getLastModifiedTime(script);
+                long size = Files.size(script);
+                entry = programs.get(script);
+                cached = entry != null && entry.modified.equals(modified) && entry.size == size;
+                if (!cached) {
+                    entry = new Entry(modified, size, engine.compile(script));
+                    programs.put(script, entry);
+                }
+            } catch (Exception e) {
+                Protocol.writeError(client, e.toString());
+                Protocol.writeDone(client, 1, System.nanoTime() - start, 0, false);
+                log.printf("%s failed: %s%n", script, e);
+                return;
+            }
+
+            long compiled = System.nanoTime();
+            int status = 0;
+            try {
+                entry.program.submit(scheduler, new FrameChannel(client)).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+                Protocol.writeError(client, e.getCause().toString());
+                status = 1;
+            }
+
+            long finished = System.nanoTime();
+            Protocol.writeDone(client, status, compiled - start, finished - compiled, cached);
+            log.printf("%s %s, compile %.2f ms, run %.2f ms%n", script, cached ? "cached" : "compiled",
+                (compiled - start) / 1e6, (finished - compiled) / 1e6);
+        } catch (IOException e) {
+            log.printf("request dropped: %s%n", e);
+        }
+    }
+
+    // a leftover socket file from a daemon that died is replaced; a live daemon is left alone
+    private void claimSocket() throws IOException {
+        Files.createDirectories(socket.toAbsolutePath().getParent());
+        if (!Files.exists(socket)) return;
+
+        if (isListening(socket)) {
+            throw new IOException(String.format("A jc daemon is already listening on '%s'", socket));
+        }
+        Files.delete(socket);
+    }
+
+    public static boolean isListening(Path socket) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void removeSocket() {
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            // the next daemon replaces it
+        }
+    }
+
+    // one virtual thread per request on JDK 21, pooled platform threads before that
+    private static ThreadFactory threadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return runnable -> {
+                Thread thread = new Thread(runnable, "jc-request");
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    // sends each flush of the script's output to the client as an OUT frame
+    private static class FrameChannel implements WritableByteChannel {
+        private final SocketChannel client;
+
+        FrameChannel(SocketChannel client) {
+            this.client = client;
+        }
+
+        public int write(ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            Protocol.writeFrame(client, Protocol.OUT, source);
+            return length;
+        }
+
+        public boolean isOpen() {
+            return client.isOpen();
+        }
+
+        public void close() {
+        }
+    }
+
+    private static class Entry {
+        final FileTime modified;
+        final long size;
+        final CompiledProgram program;
+
+        Entry(FileTime modified, long size, CompiledProgram program) {
+            this.modified = modified;
+            this.size = size;
+            this.program = program;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.jc.daemon;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// a request is MAGIC and the script's absolute path; the reply is a series of frames, each a type byte,
+// a payload length and the payload, ending with one DONE frame
+public class Protocol {
+    public static final int MAGIC = 0x4A434452;
+
+    public static final byte OUT = 1;
+    public static final byte ERR = 2;
+    public static final byte DONE = 3;
+
+    static final int HEADER_SIZE = 5;
+    static final int DONE_SIZE = 4 + 8 + 8 + 1;
+    private static final int MAX_PATH = 1 << 16;
+
+    public static Path defaultSocket() {
+        return Paths.get(System.getProperty("user.home"), ".cache", "jc", "daemon.sock");
+    }
+
+    public static void writeRequest(SocketChannel channel, Path script) throws IOException {
+        byte[] path = script.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + path.length);
+        buffer.putInt(MAGIC).putInt(path.length).put(path).flip();
+        writeFully(channel, buffer);
+    }
+
+    public static Path readRequest(SocketChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, 8);
+        if (header.getInt() != MAGIC) throw new IOException("Not a jc request");
+
+        int length = header.getInt();
+        if (length < 0 || length > MAX_PATH) throw new IOException("Bad path length: " + length);
+        return Paths.get(StandardCharsets.UTF_8.decode(readFully(channel, length)).toString());
+    }
+
+    public static void writeFrame(SocketChannel channel, byte type, ByteBuffer payload) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(type).putInt(payload.remaining()).flip();
+        ByteBuffer[] buffers = { header, payload };
+        while (payload.hasRemaining() || header.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    public static void writeError(SocketChannel channel, String message) throws IOException {
+        writeFrame(channel, ERR, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static void writeDone(SocketChannel channel, int status, long compileNanos, long runNanos, boolean cached)
+        throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(DONE_SIZE);
+        payload.putInt(status).putLong(compileNanos).putLong(runNanos).put((byte) (cached ? 1 : 0)).flip();
+        writeFrame(channel, DONE, payload);
+    }
+
+    static ByteBuffer readFully(ReadableByteChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("Connection closed");
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.jc.interpreter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import com.jc.bytecode.ClassWriter;
+import com.jc.bytecode.Code;
+import com.jc.bytecode.Label;
+
+import static com.jc.bytecode.JvmOpcodes.*;
+
+// compiles a whole program ahead of time into a class whose main method runs it, with typed locals in place
+// of the frame's slots and a static method per function. The jar it writes holds that class and the runtime
+// classes it calls into, none of which need the parser, so it runs on a plain `java -jar`.
+public class AotCompiler {
+    public static final String CLASS_NAME = "JcScript";
+    private static final String SCRIPT = "com/jc/interpreter/CompiledScript";
+    private static final String FLUSH_POLICY = "com/jc/interpreter/FlushPolicy";
+    private static final String OBJECT = "Ljava/lang/Object;";
+    private static final String[] RUNTIME = {
+        "CompiledScript", "Output", "FlushPolicy", "Rope", "ArrayOps", "Arithmetic"
+    };
+
+    private static final int OUTPUT_LOCAL = 1;
+
+    private FlushPolicy flushPolicy = FlushPolicy.AUTO;
+
+    // the policy the compiled script prints with
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    public void writeJar(Program program, Path jar) throws IOException {
+        byte[] script = generate(program);
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, CLASS_NAME);
+
+        try (OutputStream file = Files.newOutputStream(jar);
+            JarOutputStream out = new JarOutputStream(file, manifest)) {
+
+            out.putNextEntry(new JarEntry(CLASS_NAME + ".class"));
+            out.write(script);
+            out.closeEntry();
+
+            for (String name : RUNTIME) {
+                try (InputStream in = AotCompiler.class.getResourceAsStream(name + ".class")) {
+                    if (in == null) throw new IOException("Missing runtime class: " + name);
+                    out.putNextEntry(new JarEntry("com/jc/interpreter/" + name + ".class"));
+                    in.transferTo(out);
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    // throws IllegalStateException when a unit does not fit in a method
+    byte[] generate(Program program) {
+        ClassWriter writer = new ClassWriter(CLASS_NAME, SCRIPT);
+        writer.addDefaultConstructor();
+
+        int maxStack = 8;
+        for (Function function : program.functions) {
+            maxStack = Math.max(maxStack, 2 * function.parameterTypes.length + 2);
+        }
+
+        Code main = writer.newCode();
+        main.type(NEW, CLASS_NAME);
+        main.op(DUP);
+        main.invoke(INVOKESPECIAL, CLASS_NAME, "<init>", "()V");
+        main.field(GETSTATIC, FLUSH_POLICY, flushPolicy.name(), "L" + FLUSH_POLICY + ";");
+        main.invoke(INVOKESTATIC, SCRIPT, "launch", "(L" + SCRIPT + ";L" + FLUSH_POLICY + ";)V");
+        main.op(RETURN);
+        main.setMaxStack(3);
+        main.setMaxLocals(1);
+        writer.addMethod(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V", main);
+
+        // the main code ends with a jump past the functions, or at the end of the program
+        int mainEnd = program.functions.length > 0 ? program.functions[0].entry - 1 : program.ops.length - 1;
+        Code run = writer.newCode();
+        run.addFrameLocal(Code.ITEM_OBJECT, CLASS_NAME);
+        run.addFrameLocal(Code.ITEM_OBJECT, LoopCompiler.OUTPUT);
+        AotTranslator translator = new AotTranslator(program, 0, mainEnd, run, CLASS_NAME, OUTPUT_LOCAL);
+        int maxLocals = translator.assignLocals(OUTPUT_LOCAL + 1);
+        translator.initializeLocals();
+        translator.translate();
+        // every way out of the main code ends the program
+        for (Label exit : translator.exits().values()) {
+            run.mark(exit);
+            run.op(RETURN);
+        }
+        run.setMaxStack(maxStack);
+        run.setMaxLocals(maxLocals);
+        writer.addMethod(ACC_PUBLIC, "run", "(L" + LoopCompiler.OUTPUT + ";)V", run);
+
+        for (Function function : program.functions) {
+            writer.addMethod(ACC_PRIVATE | ACC_STATIC, methodName(function), descriptor(program, function),
+                function(program, function, writer.newCode(), maxStack));
+        }
+        return writer.toByteArray();
+    }
+
+    // the output comes first, then the parameters in order
+    private Code function(Program program, Function function, Code code, int maxStack) {
+        code.addFrameLocal(Code.ITEM_OBJECT, LoopCompiler.OUTPUT);
+        int firstParameter = 1;
+        int local = firstParameter;
+        for (int type : function.parameterTypes) {
+            if (type == Slots.REAL) code.addFrameLocal(Code.ITEM_DOUBLE, null);
+            else if (type == Slots.STR || type == Slots.ARRAY) code.addFrameLocal(Code.ITEM_OBJECT, "java/lang/Object");
+            else code.addFrameLocal(Code.ITEM_INTEGER, null);
+            local += type == Slots.REAL ? 2 : 1;
+        }
+
+        int end = function.entry + function.length - 1;
+        AotTranslator translator = new AotTranslator(program, function.entry, end, code, CLASS_NAME, 0);
+        int maxLocals = translator.assignLocals(local);
+        translator.initializeLocals();
+        translator.bindParameters(function, firstParameter);
+        translator.translate();
+        // a function ends with its RET, so only the fall-through after it gets here and nothing reaches it
+        int returnType = returnType(program, function);
+        for (Label exit : translator.exits().values()) {
+            code.mark(exit);
+            AotTranslator.pushDefault(code, returnType);
+            code.op(returnOpcode(returnType));
+        }
+        code.setMaxStack(maxStack);
+        code.setMaxLocals(maxLocals);
+        return code;
+    }
+
+    static String methodName(Function function) {
+        return "jc$" + function.name;
+    }
+
+    static String descriptor(Program program, Function function) {
+        StringBuilder descriptor = new StringBuilder("(L" + LoopCompiler.OUTPUT + ";");
+        for (int type : function.parameterTypes) {
+            descriptor.append(typeDescriptor(type));
+        }
+        return descriptor.append(')').append(typeDescriptor(returnType(program, function))).toString();
+    }
+
+    // the type of the RET every function ends with
+    private static int returnType(Program program, Function function) {
+        return Opcode.operandType(program.ops[function.entry + function.length - 1]);
+    }
+
+    private static String typeDescriptor(int type) {
+        if (type == Slots.INT) return "I";
+        if (type == Slots.REAL) return "D";
+        if (type == Slots.BOOL) return "Z";
+        return OBJECT;
+    }
+
+    static int returnOpcode(int type) {
+        if (type == Slots.REAL) return DRETURN;
+        if (type == Slots.STR || type == Slots.ARRAY) return ARETURN;
+        return IRETURN;
+    }
+}
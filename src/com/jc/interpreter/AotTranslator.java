@@ -0,0 +1,175 @@
+package com.jc.interpreter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import com.jc.bytecode.Code;
+
+import static com.jc.bytecode.JvmOpcodes.*;
+
+// translates one unit of a program, the main code or a function, into a method of the class AotCompiler
+// generates. Calls become invokestatic: each ARG keeps its argument in a local of its own until the CALL
+// passes them all, and RET returns. A parallel for runs its iterations in order, as the runner does on one
+// thread, so its reductions have nothing left to do.
+final class AotTranslator extends RegionTranslator {
+    private final Program program;
+    private final int start;
+    private final int end;
+    private final Code code;
+    private final String className;
+    private final int outputLocal;
+    private final int[] argumentLocals;
+    private final int[][] callArguments;
+
+    AotTranslator(Program program, int start, int end, Code code, String className, int outputLocal) {
+        super(program, start, end, code, outputLocal, -1);
+        this.program = program;
+        this.start = start;
+        this.end = end;
+        this.code = code;
+        this.className = className;
+        this.outputLocal = outputLocal;
+        this.argumentLocals = new int[end - start + 1];
+        this.callArguments = new int[end - start + 1][];
+        matchArguments();
+    }
+
+    // a call takes the ARGs before it that no call in between took, the way they come off the runner's stack
+    private void matchArguments() {
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        for (int pc = start; pc <= end; pc++) {
+            int op = program.ops[pc];
+            if (Opcode.isArgument(op)) pending.push(pc);
+            else if (Opcode.isCall(op)) {
+                int[] arguments = new int[program.functions[program.a[pc]].parameterTypes.length];
+                for (int i = arguments.length - 1; i >= 0; i--) {
+                    if (pending.isEmpty()) throw new IllegalStateException("Missing argument of the call at " + pc);
+                    arguments[i] = pending.pop();
+                }
+                callArguments[pc - start] = arguments;
+            }
+        }
+        if (!pending.isEmpty()) throw new IllegalStateException("Argument without a call at " + pending.peek());
+    }
+
+    @Override
+    int assignLocals(int firstLocal) {
+        super.assignLocals(firstLocal);
+        Arrays.fill(argumentLocals, -1);
+        for (int pc = start; pc <= end; pc++) {
+            if (Opcode.isArgument(program.ops[pc])) {
+                argumentLocals[pc - start] = newLocal(Opcode.operandType(program.ops[pc]));
+            }
+        }
+        return localCount();
+    }
+
+    // every local starts out as a zero or null, like the runner's slots, so the frames can declare them all
+    void initializeLocals() {
+        int[] counts = { program.intSlots, program.realSlots, program.boolSlots, program.strSlots, program.arraySlots };
+        for (int type = 0; type < counts.length; type++) {
+            for (int slot = 0; slot < counts[type]; slot++) {
+                int local = localOf(type, slot);
+                if (local >= 0) initialize(type, local);
+            }
+        }
+        for (int pc = start; pc <= end; pc++) {
+            if (argumentLocals[pc - start] >= 0) {
+                initialize(Opcode.operandType(program.ops[pc]), argumentLocals[pc - start]);
+            }
+        }
+    }
+
+    // copies the parameters, the method's locals from firstLocal on, into the locals of their slots
+    void bindParameters(Function function, int firstLocal) {
+        int local = firstLocal;
+        for (int i = 0; i < function.parameterTypes.length; i++) {
+            int type = function.parameterTypes[i];
+            int slot = function.parameterSlots[i];
+            if (slot >= 0 && localOf(type, slot) >= 0) {
+                code.local(loadOpcode(type), local);
+                code.local(storeOpcode(type), localOf(type, slot));
+            }
+            local += type == Slots.REAL ? 2 : 1;
+        }
+    }
+
+    private void initialize(int type, int local) {
+        pushDefault(code, type);
+        code.local(storeOpcode(type), local);
+    }
+
+    static void pushDefault(Code code, int type) {
+        if (type == Slots.REAL) code.op(DCONST_0);
+        else if (type == Slots.STR || type == Slots.ARRAY) code.op(ACONST_NULL);
+        else code.op(ICONST_0);
+    }
+
+    @Override
+    void translate(int pc) {
+        int op = program.ops[pc];
+
+        switch (op) {
+            case Opcode.PAR_FOR:
+                loadA(pc);
+                loadB(pc);
+                code.jump(IF_ICMPGE, target(program.dests[pc]));
+                break;
+            case Opcode.PAR_NEXT: {
+                int index = localOf(Slots.INT, program.a[pc]);
+                code.local(ILOAD, index);
+                code.op(ICONST_1);
+                code.op(IADD);
+                code.local(ISTORE, index);
+                loadA(pc);
+                loadB(pc);
+                code.jump(IF_ICMPLT, jumpTarget(pc));
+                break;
+            }
+            case Opcode.IREDUCE_ADD:
+            case Opcode.IREDUCE_MULT:
+            case Opcode.IREDUCE_MIN:
+            case Opcode.IREDUCE_MAX:
+            case Opcode.RREDUCE_ADD:
+            case Opcode.RREDUCE_MULT:
+            case Opcode.RREDUCE_MIN:
+            case Opcode.RREDUCE_MAX:
+                break;
+
+            case Opcode.IARG:
+            case Opcode.RARG:
+            case Opcode.BARG:
+            case Opcode.SARG:
+            case Opcode.AARG:
+                loadA(pc);
+                code.local(storeOpcode(Opcode.operandType(op)), argumentLocals[pc - start]);
+                break;
+            case Opcode.ICALL:
+            case Opcode.RCALL:
+            case Opcode.BCALL:
+            case Opcode.SCALL:
+            case Opcode.ACALL: {
+                Function function = program.functions[program.a[pc]];
+                code.local(ALOAD, outputLocal);
+                for (int argument : callArguments[pc - start]) {
+                    code.local(loadOpcode(Opcode.operandType(program.ops[argument])), argumentLocals[argument - start]);
+                }
+                code.invoke(INVOKESTATIC, className, AotCompiler.methodName(function),
+                    AotCompiler.descriptor(program, function));
+                store(pc);
+                break;
+            }
+            case Opcode.IRET:
+            case Opcode.RRET:
+            case Opcode.BRET:
+            case Opcode.SRET:
+            case Opcode.ARET:
+                loadA(pc);
+                code.op(AotCompiler.returnOpcode(Opcode.operandType(op)));
+                break;
+
+            default:
+                super.translate(pc);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.jc.interpreter;
+
+public final class Arithmetic {
+
+    private Arithmetic() {
+    }
+
+    // exact square-and-multiply power; negative exponents and results outside
+    // the int range fall back to the floored double power jc always used
+    public static int ipow(int base, int exponent) {
+        if (exponent >= 0) {
+            long result = 1;
+            long factor = base;
+            int remaining = exponent;
+
+            while (remaining != 0) {
+                if ((remaining & 1) != 0) {
+                    result *= factor;
+                    if (result != (int) result) return floorPow(base, exponent);
+                }
+                remaining >>>= 1;
+                if (remaining != 0) {
+                    factor *= factor;
+                    if (factor != (int) factor) return floorPow(base, exponent);
+                }
+            }
+            return (int) result;
+        }
+        return floorPow(base, exponent);
+    }
+
+    private static int floorPow(int base, int exponent) {
+        return (int) Math.floor(Math.pow(base, exponent));
+    }
+}
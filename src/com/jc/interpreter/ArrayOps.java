@@ -0,0 +1,157 @@
+package com.jc.interpreter;
+
+import java.util.Arrays;
+
+// the bulk array builtins, shared by the runner and compiled loops. Each one is a plain counted loop over
+// primitive arrays with no early exit, the shape HotSpot's C2 unrolls and turns into SIMD instructions.
+public final class ArrayOps {
+
+    private ArrayOps() {
+    }
+
+    public static int[] fill(int[] values, int value) {
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    public static double[] fill(double[] values, double value) {
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    public static boolean[] fill(boolean[] values, boolean value) {
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    public static int sum(int[] values) {
+        int sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    // added in index order, so the result is the same as a jc loop adding the elements one by one
+    public static double sum(double[] values) {
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public static int min(int[] values) {
+        nonEmpty(values.length, "min");
+        int min = values[0];
+        for (int i = 1; i < values.length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    public static double min(double[] values) {
+        nonEmpty(values.length, "min");
+        double min = values[0];
+        for (int i = 1; i < values.length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    public static int max(int[] values) {
+        nonEmpty(values.length, "max");
+        int max = values[0];
+        for (int i = 1; i < values.length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    public static double max(double[] values) {
+        nonEmpty(values.length, "max");
+        double max = values[0];
+        for (int i = 1; i < values.length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    public static int[] add(int[] a, int[] b) {
+        int[] result = new int[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    public static double[] add(double[] a, double[] b) {
+        double[] result = new double[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    public static int[] sub(int[] a, int[] b) {
+        int[] result = new int[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] - b[i];
+        }
+        return result;
+    }
+
+    public static double[] sub(double[] a, double[] b) {
+        double[] result = new double[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] - b[i];
+        }
+        return result;
+    }
+
+    public static int[] mult(int[] a, int[] b) {
+        int[] result = new int[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] * b[i];
+        }
+        return result;
+    }
+
+    public static double[] mult(double[] a, double[] b) {
+        double[] result = new double[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] * b[i];
+        }
+        return result;
+    }
+
+    // integer division has no vector instruction, but it still throws on a zero divisor like IDIV does
+    public static int[] div(int[] a, int[] b) {
+        int[] result = new int[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] / b[i];
+        }
+        return result;
+    }
+
+    public static double[] div(double[] a, double[] b) {
+        double[] result = new double[length(a.length, b.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] / b[i];
+        }
+        return result;
+    }
+
+    private static void nonEmpty(int length, String operation) {
+        if (length == 0) {
+            throw new IllegalArgumentException(String.format("Cannot take the %s of an empty array", operation));
+        }
+    }
+
+    private static int length(int a, int b) {
+        if (a != b) {
+            throw new IllegalArgumentException(String.format("Arrays have different lengths: %d and %d", a, b));
+        }
+        return a;
+    }
+}
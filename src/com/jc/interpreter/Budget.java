@@ -0,0 +1,99 @@
+package com.jc.interpreter;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// what one run of a script has used of its Limits; the workers of a parallel for charge the same budget
+final class Budget {
+    // instructions between two checks when a limit is set
+    static final int CHECK_INTERVAL = 1 << 14;
+    private static final int REFERENCE_SIZE = 8;
+
+    private final Limits limits;
+    private final AtomicLong instructions;
+    private final long deadline;
+
+    Budget(Limits limits) {
+        this.limits = limits;
+        this.instructions = new AtomicLong();
+        this.deadline = System.nanoTime() + limits.getTimeoutNanos();
+    }
+
+    // the fuel a runner may spend before its next check
+    int grant() {
+        long max = limits.getMaxInstructions();
+        if (max == 0) return CHECK_INTERVAL;
+        return (int) Math.max(0, Math.min(CHECK_INTERVAL, max - instructions.get()));
+    }
+
+    // counts instructions without checking the limits, for what a run spent after its last check
+    void add(long used) {
+        instructions.addAndGet(used);
+    }
+
+    void charge(long used, Frame frame) {
+        long total = instructions.addAndGet(used);
+        if (limits.getMaxInstructions() > 0 && total > limits.getMaxInstructions()) {
+            throw new LimitExceededException(String.format(
+                "Instruction limit exceeded: %d instructions", limits.getMaxInstructions()));
+        }
+        if (limits.getTimeoutNanos() > 0 && System.nanoTime() - deadline > 0) {
+            throw new LimitExceededException(String.format(
+                "Time limit exceeded: %d ms", limits.getTimeoutNanos() / 1_000_000));
+        }
+        if (limits.getMaxMemory() > 0 && footprint(frame) > limits.getMaxMemory()) {
+            throw new LimitExceededException(String.format(
+                "Memory limit exceeded: %d bytes", limits.getMaxMemory()));
+        }
+    }
+
+    // the bytes a run may still allocate before its footprint is measured again; throws when the allocation
+    // of bytes about to happen would take it over the memory limit
+    long allowance(Frame frame, long bytes) {
+        if (limits.getMaxMemory() == 0) return Long.MAX_VALUE;
+        long free = limits.getMaxMemory() - footprint(frame) - bytes;
+        if (free < 0) {
+            throw new LimitExceededException(String.format(
+                "Memory limit exceeded: %d bytes", limits.getMaxMemory()));
+        }
+        return free;
+    }
+
+    // an estimate: a value held by several variables is counted once, and so are ropes built on each other,
+    // which share their pieces
+    static long footprint(Frame frame) {
+        long bytes = 4L * frame.ints.length + 8L * frame.reals.length + frame.bools.length
+            + REFERENCE_SIZE * (frame.strs.length + frame.arrays.length);
+        IdentityHashMap<Object, Long> held = new IdentityHashMap<>();
+        for (Object str : frame.strs) {
+            hold(held, str);
+        }
+        for (Object array : frame.arrays) {
+            hold(held, array);
+        }
+        for (long size : held.values()) {
+            bytes += size;
+        }
+        return bytes;
+    }
+
+    // ropes sharing their pieces count as the longest of them
+    private static void hold(IdentityHashMap<Object, Long> held, Object value) {
+        if (value == null) return;
+        Object key = value instanceof Rope ? ((Rope) value).storage() : value;
+        held.merge(key, bytes(value), Math::max);
+    }
+
+    // the characters of a str or the elements of an array; compiled loops call this before they allocate
+    static long bytes(Object value) {
+        if (value instanceof CharSequence) return 2L * ((CharSequence) value).length();
+        if (value instanceof int[]) return 4L * ((int[]) value).length;
+        if (value instanceof double[]) return 8L * ((double[]) value).length;
+        if (value instanceof boolean[]) return ((boolean[]) value).length;
+        return 0;
+    }
+
+    static long arrayBytes(int length, int elementSize) {
+        return (long) length * elementSize;
+    }
+}
@@ -0,0 +1,184 @@
+package com.jc.interpreter;
+
+import java.util.Arrays;
+
+// the calls a runner is inside. Each CALL is remembered with its function, and the values ARG pushes and a
+// recursive call saves go on one stack per slot type. The arrays grow by doubling and are kept between runs,
+// so a call copies values but allocates nothing.
+final class CallStack {
+    static final int DEFAULT_MAX_DEPTH = 100_000;
+    private static final int INITIAL_DEPTH = 64;
+    private static final int INITIAL_VALUES = 256;
+
+    private int depth;
+    private int[] calls = new int[INITIAL_DEPTH];
+    private Function[] functions = new Function[INITIAL_DEPTH];
+
+    private int[] ints = new int[INITIAL_VALUES];
+    private double[] reals = new double[INITIAL_VALUES];
+    private boolean[] bools = new boolean[INITIAL_VALUES];
+    private Object[] strs = new Object[INITIAL_VALUES];
+    private Object[] arrays = new Object[INITIAL_VALUES];
+    private int intTop;
+    private int realTop;
+    private int boolTop;
+    private int strTop;
+    private int arrayTop;
+
+    void pushInt(int value) {
+        if (intTop == ints.length) ints = Arrays.copyOf(ints, intTop * 2);
+        ints[intTop++] = value;
+    }
+
+    void pushReal(double value) {
+        if (realTop == reals.length) reals = Arrays.copyOf(reals, realTop * 2);
+        reals[realTop++] = value;
+    }
+
+    void pushBool(boolean value) {
+        if (boolTop == bools.length) bools = Arrays.copyOf(bools, boolTop * 2);
+        bools[boolTop++] = value;
+    }
+
+    void pushStr(Object value) {
+        if (strTop == strs.length) strs = Arrays.copyOf(strs, strTop * 2);
+        strs[strTop++] = value;
+    }
+
+    void pushArray(Object value) {
+        if (arrayTop == arrays.length) arrays = Arrays.copyOf(arrays, arrayTop * 2);
+        arrays[arrayTop++] = value;
+    }
+
+    // enters function from the CALL at pc. A recursive function saves its slots first, since the caller may
+    // be the same function; then the arguments, which stay on the stacks until the call returns, are copied
+    // into the parameters.
+    void enter(Function function, int pc, Frame frame, int maxDepth) {
+        if (depth == maxDepth) {
+            throw new LimitExceededException(String.format("Call depth limit exceeded: %d calls", maxDepth));
+        }
+        if (depth == calls.length) {
+            calls = Arrays.copyOf(calls, depth * 2);
+            functions = Arrays.copyOf(functions, depth * 2);
+        }
+        calls[depth] = pc;
+        functions[depth] = function;
+        depth++;
+
+        int intArgument = intTop;
+        int realArgument = realTop;
+        int boolArgument = boolTop;
+        int strArgument = strTop;
+        int arrayArgument = arrayTop;
+        if (function.recursive) save(function, frame);
+
+        int[] types = function.parameterTypes;
+        int[] slots = function.parameterSlots;
+        for (int i = types.length - 1; i >= 0; i--) {
+            int slot = slots[i];
+            switch (types[i]) {
+                case Slots.INT:
+                    intArgument--;
+                    if (slot >= 0) frame.ints[slot] = ints[intArgument];
+                    break;
+                case Slots.REAL:
+                    realArgument--;
+                    if (slot >= 0) frame.reals[slot] = reals[realArgument];
+                    break;
+                case Slots.BOOL:
+                    boolArgument--;
+                    if (slot >= 0) frame.bools[slot] = bools[boolArgument];
+                    break;
+                case Slots.STR:
+                    strArgument--;
+                    if (slot >= 0) frame.strs[slot] = strs[strArgument];
+                    break;
+                default:
+                    arrayArgument--;
+                    if (slot >= 0) frame.arrays[slot] = arrays[arrayArgument];
+                    break;
+            }
+        }
+    }
+
+    // leaves the innermost call, giving a recursive function's slots back to its caller and dropping the
+    // arguments; returns the pc of the CALL
+    int leave(Frame frame) {
+        depth--;
+        Function function = functions[depth];
+        if (function.recursive) restore(function, frame);
+
+        int[] arguments = function.argumentCounts;
+        intTop -= arguments[Slots.INT];
+        realTop -= arguments[Slots.REAL];
+        boolTop -= arguments[Slots.BOOL];
+        strTop -= arguments[Slots.STR];
+        arrayTop -= arguments[Slots.ARRAY];
+        return calls[depth];
+    }
+
+    private void save(Function function, Frame frame) {
+        int[] bases = function.slotBases;
+        int[] counts = function.slotCounts;
+
+        int count = counts[Slots.INT];
+        if (count > 0) {
+            if (intTop + count > ints.length) ints = Arrays.copyOf(ints, Math.max(ints.length * 2, intTop + count));
+            System.arraycopy(frame.ints, bases[Slots.INT], ints, intTop, count);
+            intTop += count;
+        }
+        count = counts[Slots.REAL];
+        if (count > 0) {
+            if (realTop + count > reals.length) reals = Arrays.copyOf(reals, Math.max(reals.length * 2, realTop + count));
+            System.arraycopy(frame.reals, bases[Slots.REAL], reals, realTop, count);
+            realTop += count;
+        }
+        count = counts[Slots.BOOL];
+        if (count > 0) {
+            if (boolTop + count > bools.length) bools = Arrays.copyOf(bools, Math.max(bools.length * 2, boolTop + count));
+            System.arraycopy(frame.bools, bases[Slots.BOOL], bools, boolTop, count);
+            boolTop += count;
+        }
+        count = counts[Slots.STR];
+        if (count > 0) {
+            if (strTop + count > strs.length) strs = Arrays.copyOf(strs, Math.max(strs.length * 2, strTop + count));
+            System.arraycopy(frame.strs, bases[Slots.STR], strs, strTop, count);
+            strTop += count;
+        }
+        count = counts[Slots.ARRAY];
+        if (count > 0) {
+            if (arrayTop + count > arrays.length) arrays = Arrays.copyOf(arrays, Math.max(arrays.length * 2, arrayTop + count));
+            System.arraycopy(frame.arrays, bases[Slots.ARRAY], arrays, arrayTop, count);
+            arrayTop += count;
+        }
+    }
+
+    private void restore(Function function, Frame frame) {
+        int[] bases = function.slotBases;
+        int[] counts = function.slotCounts;
+
+        intTop -= counts[Slots.INT];
+        System.arraycopy(ints, intTop, frame.ints, bases[Slots.INT], counts[Slots.INT]);
+        realTop -= counts[Slots.REAL];
+        System.arraycopy(reals, realTop, frame.reals, bases[Slots.REAL], counts[Slots.REAL]);
+        boolTop -= counts[Slots.BOOL];
+        System.arraycopy(bools, boolTop, frame.bools, bases[Slots.BOOL], counts[Slots.BOOL]);
+        strTop -= counts[Slots.STR];
+        System.arraycopy(strs, strTop, frame.strs, bases[Slots.STR], counts[Slots.STR]);
+        arrayTop -= counts[Slots.ARRAY];
+        System.arraycopy(arrays, arrayTop, frame.arrays, bases[Slots.ARRAY], counts[Slots.ARRAY]);
+    }
+
+    // forgets the calls of an earlier run, which may have failed inside them, and releases the strs and arrays
+    // it left behind
+    void clear() {
+        Arrays.fill(strs, null);
+        Arrays.fill(arrays, null);
+        depth = 0;
+        intTop = 0;
+        realTop = 0;
+        boolTop = 0;
+        strTop = 0;
+        arrayTop = 0;
+    }
+}
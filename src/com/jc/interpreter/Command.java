@@ -3,11 +3,15 @@ package com.jc.interpreter;
 import com.jc.node.Expression;
 
 public class Command {
-    public String label;
+    public int label;
     public Op op;
     public Expression left;
     public Expression right;
     public String result;
+    public int target;
+    // the function a CALL enters, by its index in the program
+    public int function;
+    public int line;
 
     public Command() {
     }
@@ -19,9 +23,14 @@ public class Command {
         this.result = result;
     }
 
-    public Command(String label, Op op, Expression left, Expression right, String result) {
-        this(op, left, right, result);
+    public Command(Op op, Expression condition, int target) {
+        this.op = op;
+        this.left = condition;
+        this.target = target;
+    }
+
+    public Command(int label) {
         this.label = label;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package com.jc.interpreter;
+
+public interface CompiledLoop {
+
+    // runs the loop from its head and returns the instruction to resume at
+    int execute(Frame frame);
+}
@@ -0,0 +1,26 @@
+package com.jc.interpreter;
+
+// the hot loops compiled for one program, shared by every runner executing it so each loop is compiled once
+public class CompiledLoops {
+    private final Program program;
+    private final LoopCompiler compiler;
+    final CompiledLoop[] loops;
+    final int[] backEdges;
+
+    public CompiledLoops(Program program) {
+        this.program = program;
+        this.compiler = new LoopCompiler();
+        this.loops = new CompiledLoop[program.size()];
+        this.backEdges = new int[program.size()];
+    }
+
+    // runners count back-edges without locking; a lost increment only delays compilation
+    synchronized CompiledLoop compile(int pc) {
+        CompiledLoop loop = loops[pc];
+        if (loop == null) {
+            loop = compiler.compile(program, program.dests[pc], pc);
+            loops[pc] = loop;
+        }
+        return loop;
+    }
+}
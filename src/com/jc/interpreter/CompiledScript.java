@@ -0,0 +1,28 @@
+package com.jc.interpreter;
+
+// a whole script compiled ahead of time by AotCompiler. The generated class extends this one, and its main
+// method hands an instance to launch, so the jar needs only the few runtime classes the code calls into.
+public abstract class CompiledScript {
+    // a call is a JVM call here, so the script gets a stack as deep as the runner's default call depth limit
+    private static final long STACK_SIZE = 1L << 30;
+
+    public abstract void run(Output output);
+
+    public static void launch(CompiledScript script, FlushPolicy policy) throws Throwable {
+        Output output = Output.standard(policy);
+        output.flushOnExit();
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                script.run(output);
+            } catch (Throwable e) {
+                failure[0] = e;
+            } finally {
+                output.flush();
+            }
+        }, "main", STACK_SIZE);
+        thread.start();
+        thread.join();
+        if (failure[0] != null) throw failure[0];
+    }
+}
@@ -0,0 +1,77 @@
+package com.jc.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jc.node.Expression;
+
+// append-only instruction stream; labels are integer ids starting at 1, jumps name them by id
+public class Emitter {
+    private final ArrayList<Command> code;
+    private int labelSequence;
+    private int line;
+
+    public Emitter() {
+        code = new ArrayList<>();
+        labelSequence = 1;
+    }
+
+    public int newLabel() {
+        return labelSequence++;
+    }
+
+    public int labelCount() {
+        return labelSequence;
+    }
+
+    public void label(int label) {
+        add(new Command(label));
+    }
+
+    public void emit(Op op, Expression left, Expression right, String result) {
+        add(new Command(op, left, right, result));
+    }
+
+    public void jump(int target) {
+        add(new Command(Op.OP_JUMP, null, target));
+    }
+
+    public void jump(Op op, Expression condition, int target) {
+        add(new Command(op, condition, target));
+    }
+
+    // a jump that compares two operands and may also write result
+    public void jump(Op op, Expression left, Expression right, String result, int target) {
+        Command command = new Command(op, left, right, result);
+        command.target = target;
+        add(command);
+    }
+
+    // a call of the function with the given index, whose value goes to result; ARGs before it pass the arguments
+    public void call(Op op, int function, String result) {
+        Command command = new Command(op, null, null, result);
+        command.function = function;
+        add(command);
+    }
+
+    // adds a command built elsewhere, such as a copy of a function's code, keeping its line
+    public void append(Command command) {
+        code.add(command);
+    }
+
+    // returns the previous line so nested statements can restore it
+    public int setLine(int line) {
+        int previous = this.line;
+        this.line = line;
+        return previous;
+    }
+
+    public List<Command> getCode() {
+        return code;
+    }
+
+    private void add(Command command) {
+        command.line = line;
+        code.add(command);
+    }
+}
@@ -0,0 +1,14 @@
+package com.jc.interpreter;
+
+public enum FlushPolicy {
+    EXIT,
+    SIZE,
+    LINE,
+    AUTO;
+
+    // line-buffered when attached to a terminal, size-buffered otherwise
+    public FlushPolicy resolve() {
+        if (this != AUTO) return this;
+        return System.console() != null ? LINE : SIZE;
+    }
+}
@@ -0,0 +1,46 @@
+package com.jc.interpreter;
+
+import java.util.Arrays;
+
+public class Frame {
+    public int[] ints;
+    public double[] reals;
+    public boolean[] bools;
+    public Object[] strs;
+    public Object[] arrays;
+    public Output output;
+    // instructions left until the runner's next check; back-edges subtract their loop's length
+    public int fuel;
+    // bytes left to allocate until the runner measures the footprint again; allocations subtract their size
+    // before they happen, so one too large for the memory limit stops the run instead of the JVM
+    public long allowance = Long.MAX_VALUE;
+
+    public Frame(int intCount, int realCount, int boolCount, int strCount, int arrayCount) {
+        ints = new int[intCount];
+        reals = new double[realCount];
+        bools = new boolean[boolCount];
+        strs = new Object[strCount];
+        arrays = new Object[arrayCount];
+    }
+
+    // false once the allowance is used up, and the runner has to check the allocation
+    public boolean allocate(long bytes) {
+        return (allowance -= bytes) >= 0;
+    }
+
+    public void copyFrom(Frame frame) {
+        System.arraycopy(frame.ints, 0, ints, 0, ints.length);
+        System.arraycopy(frame.reals, 0, reals, 0, reals.length);
+        System.arraycopy(frame.bools, 0, bools, 0, bools.length);
+        System.arraycopy(frame.strs, 0, strs, 0, strs.length);
+        System.arraycopy(frame.arrays, 0, arrays, 0, arrays.length);
+    }
+
+    public void clear() {
+        Arrays.fill(ints, 0);
+        Arrays.fill(reals, 0);
+        Arrays.fill(bools, false);
+        Arrays.fill(strs, null);
+        Arrays.fill(arrays, null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.jc.interpreter;
+
+// a function as the runner calls it: where its code starts, the slots of its parameters and the block of slots
+// its variables and temps take, which a call of a recursive function saves for the caller
+public final class Function {
+    public final String name;
+    public final int entry;
+    public final int length;
+    public final boolean recursive;
+    public final int[] parameterTypes;
+    // -1 for a parameter the function never reads
+    public final int[] parameterSlots;
+    public final int[] slotBases;
+    public final int[] slotCounts;
+    final int[] argumentCounts;
+
+    public Function(String name, int entry, int length, boolean recursive, int[] parameterTypes,
+        int[] parameterSlots, int[] slotBases, int[] slotCounts) {
+
+        this.name = name;
+        this.entry = entry;
+        this.length = length;
+        this.recursive = recursive;
+        this.parameterTypes = parameterTypes;
+        this.parameterSlots = parameterSlots;
+        this.slotBases = slotBases;
+        this.slotCounts = slotCounts;
+        this.argumentCounts = new int[Slots.TYPES];
+        for (int type : parameterTypes) {
+            argumentCounts[type]++;
+        }
+    }
+}
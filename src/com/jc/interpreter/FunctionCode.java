@@ -0,0 +1,30 @@
+package com.jc.interpreter;
+
+import java.util.List;
+
+import com.jc.node.FunctionDeclaration;
+
+// the three-address code of one function: it is optimized and given slots apart from the main program, and
+// Lowering places it after the main program
+public class FunctionCode {
+    public final FunctionDeclaration declaration;
+    public List<Command> code;
+    // the block of slots of each type the function's variables and temps take, set by the slot allocation
+    public int[] slotBases;
+    public int[] slotCounts;
+    // the label of the RET at the end, which every return jumps to
+    final int end;
+
+    FunctionCode(FunctionDeclaration declaration, int end) {
+        this.declaration = declaration;
+        this.end = end;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Command command : code) {
+            if (command.op != null) size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,109 @@
+package com.jc.interpreter;
+
+import java.util.HashMap;
+
+import com.jc.node.Expression;
+import com.jc.node.Literal;
+import com.jc.node.Operation;
+import com.jc.node.Variable;
+
+// copies the code of a small function in place of a call, which saves the ARGs, CALL and RET and lets the
+// optimizer see the body together with the caller's arguments. Every copy renames the function's variables and
+// temps with a suffix of its own and takes fresh labels; the RET at the end becomes a move into the call's temp.
+final class Inliner {
+    private final HashMap<String, String> symbolTable;
+    private final HashMap<String, String> tempTable;
+    private final int limit;
+    private int sites;
+
+    Inliner(HashMap<String, String> symbolTable, HashMap<String, String> tempTable, int limit) {
+        this.symbolTable = symbolTable;
+        this.tempTable = tempTable;
+        this.limit = limit;
+    }
+
+    // a recursive function would copy itself forever, so it is always called
+    boolean accepts(FunctionCode function) {
+        return !function.declaration.recursive && function.size() <= limit;
+    }
+
+    int getSites() {
+        return sites;
+    }
+
+    // the suffix of the next copy
+    String newSite() {
+        return "#" + ++sites;
+    }
+
+    // the parameter the caller stores an argument in
+    String parameter(FunctionCode function, int index, String site) {
+        return variable(function.declaration.parameters.get(index).name, site);
+    }
+
+    void copy(FunctionCode function, String site, String result, Emitter emitter) {
+        HashMap<Integer, Integer> labels = new HashMap<>();
+        for (Command command : function.code) {
+            if (command.op == null) {
+                emitter.label(labels.computeIfAbsent(command.label, label -> emitter.newLabel()));
+                continue;
+            }
+
+            Command copy;
+            int op = Opcode.of(command.op);
+            if (Opcode.isReturn(op)) {
+                copy = new Command(moveOf(command.op), rename(command.left, site), null, result);
+            }
+            else {
+                copy = new Command(command.op, rename(command.left, site), rename(command.right, site), null);
+                if (command.result != null) {
+                    copy.result = Opcode.writesVariable(op) || Opcode.isElementStore(op)
+                        ? variable(command.result, site)
+                        : temp(command.result, site);
+                }
+                if (command.target != 0) {
+                    copy.target = labels.computeIfAbsent(command.target, label -> emitter.newLabel());
+                }
+                copy.function = command.function;
+            }
+            copy.line = command.line;
+            emitter.append(copy);
+        }
+    }
+
+    private Expression rename(Expression expression, String site) {
+        if (expression == null || expression instanceof Literal) return expression;
+        if (expression instanceof Variable) {
+            Variable variable = new Variable();
+            variable.name = variable(((Variable) expression).name, site);
+            variable.type = expression.type;
+            return variable;
+        }
+        Operation operation = new Operation();
+        operation.temp = temp(((Operation) expression).temp, site);
+        operation.type = expression.type;
+        return operation;
+    }
+
+    private String variable(String name, String site) {
+        String renamed = name + site;
+        symbolTable.putIfAbsent(renamed, symbolTable.get(name));
+        return renamed;
+    }
+
+    private String temp(String name, String site) {
+        String renamed = name + site;
+        tempTable.putIfAbsent(renamed, tempTable.get(name));
+        return renamed;
+    }
+
+    private static Op moveOf(Op ret) {
+        switch (ret) {
+            case OP_IRET: return Op.OP_IMOV;
+            case OP_RRET: return Op.OP_RMOV;
+            case OP_BRET: return Op.OP_BMOV;
+            case OP_SRET: return Op.OP_SMOV;
+            default: return Op.OP_AMOV;
+        }
+    }
+}
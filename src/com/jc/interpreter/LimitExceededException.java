@@ -0,0 +1,10 @@
+package com.jc.interpreter;
+
+// thrown out of Runner.run when a script goes over one of its Limits
+public class LimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
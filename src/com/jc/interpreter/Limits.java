@@ -0,0 +1,54 @@
+package com.jc.interpreter;
+
+import java.util.concurrent.TimeUnit;
+
+// per-run caps on a script; zero leaves a cap off. Instructions and time are only checked at back-edges,
+// every few thousand instructions, so a script can overshoot them slightly before it is stopped. Memory is a
+// hard cap: it is checked before every allocation, and one that would go over it stops the script instead
+public class Limits {
+    private long maxInstructions;
+    private long timeoutNanos;
+    private long maxMemory;
+    private int maxCallDepth;
+
+    public long getMaxInstructions() {
+        return maxInstructions;
+    }
+
+    // loops are charged the length of their body for each iteration
+    public void setMaxInstructions(long maxInstructions) {
+        this.maxInstructions = maxInstructions;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    // wall-clock time from the start of the run, including time spent suspended by a Scheduler
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    // bytes held by a frame's variables, counting the characters of strs and the elements of arrays
+    public void setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    public int getMaxCallDepth() {
+        return maxCallDepth;
+    }
+
+    // calls a run may be inside at once; unlike the other caps it is checked on every call and defaults to
+    // 100000 when zero
+    public void setMaxCallDepth(int maxCallDepth) {
+        this.maxCallDepth = maxCallDepth;
+    }
+
+    boolean isUnlimited() {
+        return maxInstructions == 0 && timeoutNanos == 0 && maxMemory == 0;
+    }
+}
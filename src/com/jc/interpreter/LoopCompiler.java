@@ -0,0 +1,122 @@
+package com.jc.interpreter;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+
+import com.jc.bytecode.ClassWriter;
+import com.jc.bytecode.Code;
+import com.jc.bytecode.Label;
+
+import static com.jc.bytecode.JvmOpcodes.*;
+
+public class LoopCompiler {
+    private static final String CLASS_NAME = "com/jc/interpreter/CompiledRegion";
+    static final String FRAME = "com/jc/interpreter/Frame";
+    static final String OUTPUT = "com/jc/interpreter/Output";
+    private static final String[] ARRAY_FIELDS = { "ints", "reals", "bools", "strs", "arrays" };
+    private static final String[] ARRAY_TYPES = { "[I", "[D", "[Z", "[Ljava/lang/Object;", "[Ljava/lang/Object;" };
+    private static final int[] ARRAY_LOADS = { IALOAD, DALOAD, BALOAD, AALOAD, AALOAD };
+    private static final int[] ARRAY_STORES = { IASTORE, DASTORE, BASTORE, AASTORE, AASTORE };
+
+    static final int FRAME_LOCAL = 1;
+    private static final int EXIT_LOCAL = 2;
+    static final int OUTPUT_LOCAL = 3;
+    private static final int FIRST_ARRAY_LOCAL = 4;
+    static final int FUEL_LOCAL = FIRST_ARRAY_LOCAL + ARRAY_FIELDS.length;
+    private static final int FIRST_VALUE_LOCAL = FUEL_LOCAL + 1;
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    // returns null when the region cannot be compiled; the caller keeps interpreting it
+    public CompiledLoop compile(Program program, int head, int end) {
+        try {
+            byte[] bytes = generate(program, head, end);
+            if (bytes == null) return null;
+
+            Class<?> region = lookup.defineHiddenClass(bytes, true).lookupClass();
+            return (CompiledLoop) region.getDeclaredConstructor().newInstance();
+        } catch (IllegalStateException | LinkageError | ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    byte[] generate(Program program, int head, int end) {
+        ClassWriter writer = new ClassWriter(CLASS_NAME, "java/lang/Object", "com/jc/interpreter/CompiledLoop");
+        writer.addDefaultConstructor();
+
+        Code code = writer.newCode();
+        RegionTranslator translator = new RegionTranslator(program, head, end, code);
+        if (!translator.isSupported()) return null;
+
+        code.addFrameLocal(Code.ITEM_OBJECT, CLASS_NAME);
+        code.addFrameLocal(Code.ITEM_OBJECT, FRAME);
+        code.addFrameLocal(Code.ITEM_INTEGER, null);
+        code.addFrameLocal(Code.ITEM_OBJECT, OUTPUT);
+        for (String arrayType : ARRAY_TYPES) {
+            code.addFrameLocal(Code.ITEM_OBJECT, arrayType);
+        }
+        code.addFrameLocal(Code.ITEM_INTEGER, null);
+        int maxLocals = translator.assignLocals(FIRST_VALUE_LOCAL);
+
+        code.op(ICONST_0);
+        code.local(ISTORE, EXIT_LOCAL);
+        code.local(ALOAD, FRAME_LOCAL);
+        code.field(GETFIELD, FRAME, "output", "L" + OUTPUT + ";");
+        code.local(ASTORE, OUTPUT_LOCAL);
+        for (int type = 0; type < ARRAY_FIELDS.length; type++) {
+            code.local(ALOAD, FRAME_LOCAL);
+            code.field(GETFIELD, FRAME, ARRAY_FIELDS[type], ARRAY_TYPES[type]);
+            code.local(ASTORE, FIRST_ARRAY_LOCAL + type);
+        }
+        code.local(ALOAD, FRAME_LOCAL);
+        code.field(GETFIELD, FRAME, "fuel", "I");
+        code.local(ISTORE, FUEL_LOCAL);
+        transfer(program, translator, code, true);
+
+        translator.translate();
+
+        Label epilogue = new Label();
+        for (Map.Entry<Integer, Label> exit : translator.exits().entrySet()) {
+            code.mark(exit.getValue());
+            code.iconst(exit.getKey());
+            code.local(ISTORE, EXIT_LOCAL);
+            code.jump(GOTO, epilogue);
+        }
+
+        code.mark(epilogue);
+        transfer(program, translator, code, false);
+        code.local(ALOAD, FRAME_LOCAL);
+        code.local(ILOAD, FUEL_LOCAL);
+        code.field(PUTFIELD, FRAME, "fuel", "I");
+        code.local(ILOAD, EXIT_LOCAL);
+        code.op(IRETURN);
+
+        code.setMaxStack(8);
+        code.setMaxLocals(maxLocals);
+        writer.addMethod(ACC_PUBLIC, "execute", "(L" + FRAME + ";)I", code);
+        return writer.toByteArray();
+    }
+
+    // loads every slot the region uses into its local, or writes the ones it changed back
+    private void transfer(Program program, RegionTranslator translator, Code code, boolean load) {
+        int[] counts = { program.intSlots, program.realSlots, program.boolSlots, program.strSlots, program.arraySlots };
+
+        for (int type = 0; type < counts.length; type++) {
+            for (int slot = 0; slot < counts[type]; slot++) {
+                int local = translator.localOf(type, slot);
+                if (local < 0 || (!load && !translator.isWritten(type, slot))) continue;
+
+                code.local(ALOAD, FIRST_ARRAY_LOCAL + type);
+                code.iconst(slot);
+                if (load) {
+                    code.op(ARRAY_LOADS[type]);
+                    code.local(RegionTranslator.storeOpcode(type), local);
+                }
+                else {
+                    code.local(RegionTranslator.loadOpcode(type), local);
+                    code.op(ARRAY_STORES[type]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.jc.interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import com.jc.node.Variable;
+
+public class Lowering {
+
+    private Slots slots;
+    private HashMap<Object, Integer> intPool;
+    private HashMap<Object, Integer> realPool;
+    private HashMap<Object, Integer> boolPool;
+    private HashMap<Object, Integer> strPool;
+
+    public Lowering(Slots slots) {
+        this.slots = slots;
+        this.intPool = new HashMap<>();
+        this.realPool = new HashMap<>();
+        this.boolPool = new HashMap<>();
+        this.strPool = new HashMap<>();
+    }
+
+    public Program lower(List<Command> code) {
+        return lower(code, new ArrayList<>());
+    }
+
+    // the functions follow the main program, which jumps over them to the end. Every unit numbers its labels
+    // from 1, so each one's are moved past the ones before it.
+    public Program lower(List<Command> code, List<FunctionCode> functions) {
+        if (functions.isEmpty()) return lowerCode(code);
+
+        List<Command> all = new ArrayList<>(code);
+        int offset = labelBound(code);
+        int end = offset++;
+        all.add(new Command(Op.OP_JUMP, null, end));
+
+        int[] entries = new int[functions.size()];
+        int[] lengths = new int[functions.size()];
+        int size = size(all);
+        for (int k = 0; k < functions.size(); k++) {
+            List<Command> function = functions.get(k).code;
+            for (Command command : function) {
+                all.add(relabel(command, offset));
+            }
+            offset += labelBound(function);
+            entries[k] = size;
+            lengths[k] = size(function);
+            size += lengths[k];
+        }
+        all.add(new Command(end));
+
+        Program program = lowerCode(all);
+        program.functions = new Function[functions.size()];
+        for (int k = 0; k < functions.size(); k++) {
+            FunctionCode function = functions.get(k);
+            List<Variable> parameters = function.declaration.parameters;
+            int[] types = new int[parameters.size()];
+            int[] parameterSlots = new int[parameters.size()];
+            for (int p = 0; p < parameters.size(); p++) {
+                String name = parameters.get(p).name;
+                types[p] = Slots.typeOf(parameters.get(p).type);
+                parameterSlots[p] = slots.containsVariable(name) ? slots.resolveVariable(name).slot : -1;
+            }
+            program.functions[k] = new Function(function.declaration.name, entries[k], lengths[k],
+                function.declaration.recursive, types, parameterSlots, function.slotBases, function.slotCounts);
+        }
+        return program;
+    }
+
+    private static int size(List<Command> code) {
+        int size = 0;
+        for (Command command : code) {
+            if (command.op != null) size++;
+        }
+        return size;
+    }
+
+    private static int labelBound(List<Command> code) {
+        int bound = 1;
+        for (Command command : code) {
+            bound = Math.max(bound, Math.max(command.label, command.target) + 1);
+        }
+        return bound;
+    }
+
+    private static Command relabel(Command command, int offset) {
+        Command copy = new Command(command.op, command.left, command.right, command.result);
+        if (command.op == null) copy.label = command.label + offset;
+        if (command.target != 0) copy.target = command.target + offset;
+        copy.function = command.function;
+        copy.line = command.line;
+        return copy;
+    }
+
+    // a single pass: forward jumps are chained through dests until their label is placed
+    private Program lowerCode(List<Command> code) {
+        int size = 0;
+        int labelBound = 1;
+        for (Command command : code) {
+            if (command.op != null) size++;
+            labelBound = Math.max(labelBound, Math.max(command.label, command.target) + 1);
+        }
+
+        int[] positions = new int[labelBound];
+        int[] pending = new int[labelBound];
+        Arrays.fill(positions, -1);
+        Arrays.fill(pending, -1);
+
+        Program program = new Program();
+        program.ops = new int[size];
+        program.aKinds = new int[size];
+        program.a = new int[size];
+        program.bKinds = new int[size];
+        program.b = new int[size];
+        program.dests = new int[size];
+        program.lines = new int[size];
+
+        int i = 0;
+        for (Command command : code) {
+            if (command.op == null) {
+                positions[command.label] = i;
+                for (int jump = pending[command.label]; jump >= 0; ) {
+                    int next = program.dests[jump];
+                    program.dests[jump] = i;
+                    jump = next;
+                }
+                pending[command.label] = -1;
+                continue;
+            }
+
+            int op = Opcode.of(command.op);
+            program.ops[i] = op;
+            program.aKinds[i] = Program.NONE;
+            program.bKinds[i] = Program.NONE;
+            program.dests[i] = Program.NONE;
+            program.lines[i] = command.line;
+
+            Operand left = slots.resolve(command.left);
+            if (left != null) {
+                program.aKinds[i] = kindOf(left);
+                program.a[i] = indexOf(left);
+            }
+
+            Operand right = slots.resolve(command.right);
+            if (right != null) {
+                program.bKinds[i] = kindOf(right);
+                program.b[i] = indexOf(right);
+            }
+
+            if (Opcode.isJump(op)) {
+                if (command.target <= 0) {
+                    throw new IllegalStateException("Jump without a label at instruction " + i);
+                }
+                if (positions[command.target] >= 0) {
+                    program.dests[i] = positions[command.target];
+                }
+                else {
+                    program.dests[i] = pending[command.target];
+                    pending[command.target] = i;
+                }
+            }
+            else if (Opcode.isCall(op)) {
+                program.a[i] = command.function;
+            }
+            if (!Opcode.isJump(op) && command.result != null) {
+                Operand result = Opcode.writesVariable(op) || Opcode.isElementStore(op)
+                    ? slots.resolveVariable(command.result)
+                    : slots.resolveTemp(command.result);
+                program.dests[i] = result.slot;
+            }
+            i++;
+        }
+
+        for (int label = 0; label < labelBound; label++) {
+            if (pending[label] >= 0) {
+                throw new IllegalStateException("Undefined label: L" + label);
+            }
+        }
+
+        program.intPool = new int[intPool.size()];
+        intPool.forEach((value, index) -> program.intPool[index] = (Integer) value);
+        program.realPool = new double[realPool.size()];
+        realPool.forEach((value, index) -> program.realPool[index] = (Double) value);
+        program.boolPool = new boolean[boolPool.size()];
+        boolPool.forEach((value, index) -> program.boolPool[index] = (Boolean) value);
+        program.strPool = new Object[strPool.size()];
+        strPool.forEach((value, index) -> program.strPool[index] = value);
+
+        program.intSlots = slots.count(Slots.INT);
+        program.realSlots = slots.count(Slots.REAL);
+        program.boolSlots = slots.count(Slots.BOOL);
+        program.strSlots = slots.count(Slots.STR);
+        program.arraySlots = slots.count(Slots.ARRAY);
+
+        return program;
+    }
+
+    private int kindOf(Operand operand) {
+        return (operand.type << 1) | (operand.isLiteral() ? Program.CONST : 0);
+    }
+
+    private int indexOf(Operand operand) {
+        if (!operand.isLiteral()) return operand.slot;
+        if (operand.type == Slots.INT) return intern(intPool, operand.intValue);
+        if (operand.type == Slots.REAL) return intern(realPool, operand.realValue);
+        if (operand.type == Slots.BOOL) return intern(boolPool, operand.boolValue);
+        return intern(strPool, operand.strValue);
+    }
+
+    private int intern(HashMap<Object, Integer> pool, Object value) {
+        Integer index = pool.get(value);
+        if (index == null) {
+            index = pool.size();
+            pool.put(value, index);
+        }
+        return index;
+    }
+}
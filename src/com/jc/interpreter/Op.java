@@ -1,27 +1,134 @@
 package com.jc.interpreter;
 
 public enum Op {
-    OP_STORE, 
-    OP_LOAD, 
-    OP_MOV, 
-    OP_ADD, 
-    OP_SUB, 
-    OP_MULT, 
-    OP_DIV, 
-    OP_POW, 
-    OP_DEC, 
-    OP_INC, 
-    OP_PRINT, 
+    OP_ISTORE, 
+    OP_RSTORE, 
+    OP_BSTORE, 
+    OP_SSTORE, 
+    OP_IMOV, 
+    OP_RMOV, 
+    OP_BMOV, 
+    OP_SMOV, 
+    OP_I2R, 
+    OP_IADD, 
+    OP_RADD, 
+    OP_ISUB, 
+    OP_RSUB, 
+    OP_IMULT, 
+    OP_RMULT, 
+    OP_IDIV, 
+    OP_RDIV, 
+    OP_IPOW, 
+    OP_RPOW, 
+    OP_IINC, 
+    OP_RINC, 
+    OP_IDEC, 
+    OP_RDEC, 
+    OP_IPRINT, 
+    OP_RPRINT, 
+    OP_BPRINT, 
+    OP_SPRINT, 
     OP_OR, 
     OP_AND, 
     OP_NOT, 
-    OP_EQ, 
-    OP_NEQ, 
-    OP_GT, 
-    OP_GTE, 
-    OP_LT, 
-    OP_LTE, 
+    OP_IEQ, 
+    OP_REQ, 
+    OP_BEQ, 
+    OP_SEQ, 
+    OP_INEQ, 
+    OP_RNEQ, 
+    OP_BNEQ, 
+    OP_SNEQ, 
+    OP_IGT, 
+    OP_RGT, 
+    OP_BGT, 
+    OP_SGT, 
+    OP_IGTE, 
+    OP_RGTE, 
+    OP_BGTE, 
+    OP_SGTE, 
+    OP_ILT, 
+    OP_RLT, 
+    OP_BLT, 
+    OP_SLT, 
+    OP_ILTE, 
+    OP_RLTE, 
+    OP_BLTE, 
+    OP_SLTE, 
     OP_JUMP, 
     OP_IFTRUE_JUMP, 
-    OP_IFFALSE_JUMP;
+    OP_IFFALSE_JUMP, 
+    OP_IINC_VAR, 
+    OP_RINC_VAR, 
+    OP_IDEC_VAR, 
+    OP_RDEC_VAR, 
+    OP_IEQ_JUMP, 
+    OP_INEQ_JUMP, 
+    OP_IGT_JUMP, 
+    OP_IGTE_JUMP, 
+    OP_ILT_JUMP, 
+    OP_ILTE_JUMP, 
+    OP_REQ_JUMP, 
+    OP_RNEQ_JUMP, 
+    OP_RGT_JUMP, 
+    OP_RGTE_JUMP, 
+    OP_RLT_JUMP, 
+    OP_RLTE_JUMP, 
+    OP_PAR_FOR, 
+    OP_PAR_NEXT, 
+    OP_IREDUCE_ADD, 
+    OP_IREDUCE_MULT, 
+    OP_IREDUCE_MIN, 
+    OP_IREDUCE_MAX, 
+    OP_RREDUCE_ADD, 
+    OP_RREDUCE_MULT, 
+    OP_RREDUCE_MIN, 
+    OP_RREDUCE_MAX, 
+    OP_ASTORE, 
+    OP_AMOV, 
+    OP_INEWARRAY, 
+    OP_RNEWARRAY, 
+    OP_BNEWARRAY, 
+    OP_ILEN, 
+    OP_RLEN, 
+    OP_BLEN, 
+    OP_IALOAD, 
+    OP_RALOAD, 
+    OP_BALOAD, 
+    OP_IASTORE, 
+    OP_RASTORE, 
+    OP_BASTORE, 
+    OP_IFILL, 
+    OP_RFILL, 
+    OP_BFILL, 
+    OP_ISUM, 
+    OP_RSUM, 
+    OP_IMIN, 
+    OP_RMIN, 
+    OP_IMAX, 
+    OP_RMAX, 
+    OP_IARRAY_ADD, 
+    OP_RARRAY_ADD, 
+    OP_IARRAY_SUB, 
+    OP_RARRAY_SUB, 
+    OP_IARRAY_MULT, 
+    OP_RARRAY_MULT, 
+    OP_IARRAY_DIV, 
+    OP_RARRAY_DIV, 
+    OP_SCONCAT, 
+    OP_IARG, 
+    OP_RARG, 
+    OP_BARG, 
+    OP_SARG, 
+    OP_AARG, 
+    OP_ICALL, 
+    OP_RCALL, 
+    OP_BCALL, 
+    OP_SCALL, 
+    OP_ACALL, 
+    OP_IRET, 
+    OP_RRET, 
+    OP_BRET, 
+    OP_SRET, 
+    OP_ARET;
 }
@@ -0,0 +1,290 @@
+package com.jc.interpreter;
+
+import java.lang.reflect.Field;
+
+public final class Opcode {
+    public static final int ISTORE = 0;
+    public static final int RSTORE = 1;
+    public static final int BSTORE = 2;
+    public static final int SSTORE = 3;
+    public static final int IMOV = 4;
+    public static final int RMOV = 5;
+    public static final int BMOV = 6;
+    public static final int SMOV = 7;
+    public static final int I2R = 8;
+    public static final int IADD = 9;
+    public static final int RADD = 10;
+    public static final int ISUB = 11;
+    public static final int RSUB = 12;
+    public static final int IMULT = 13;
+    public static final int RMULT = 14;
+    public static final int IDIV = 15;
+    public static final int RDIV = 16;
+    public static final int IPOW = 17;
+    public static final int RPOW = 18;
+    public static final int IINC = 19;
+    public static final int RINC = 20;
+    public static final int IDEC = 21;
+    public static final int RDEC = 22;
+    public static final int IPRINT = 23;
+    public static final int RPRINT = 24;
+    public static final int BPRINT = 25;
+    public static final int SPRINT = 26;
+    public static final int OR = 27;
+    public static final int AND = 28;
+    public static final int NOT = 29;
+    public static final int IEQ = 30;
+    public static final int REQ = 31;
+    public static final int BEQ = 32;
+    public static final int SEQ = 33;
+    public static final int INEQ = 34;
+    public static final int RNEQ = 35;
+    public static final int BNEQ = 36;
+    public static final int SNEQ = 37;
+    public static final int IGT = 38;
+    public static final int RGT = 39;
+    public static final int BGT = 40;
+    public static final int SGT = 41;
+    public static final int IGTE = 42;
+    public static final int RGTE = 43;
+    public static final int BGTE = 44;
+    public static final int SGTE = 45;
+    public static final int ILT = 46;
+    public static final int RLT = 47;
+    public static final int BLT = 48;
+    public static final int SLT = 49;
+    public static final int ILTE = 50;
+    public static final int RLTE = 51;
+    public static final int BLTE = 52;
+    public static final int SLTE = 53;
+    public static final int JUMP = 54;
+    public static final int IFTRUE_JUMP = 55;
+    public static final int IFFALSE_JUMP = 56;
+    public static final int IINC_VAR = 57;
+    public static final int RINC_VAR = 58;
+    public static final int IDEC_VAR = 59;
+    public static final int RDEC_VAR = 60;
+    public static final int IEQ_JUMP = 61;
+    public static final int INEQ_JUMP = 62;
+    public static final int IGT_JUMP = 63;
+    public static final int IGTE_JUMP = 64;
+    public static final int ILT_JUMP = 65;
+    public static final int ILTE_JUMP = 66;
+    public static final int REQ_JUMP = 67;
+    public static final int RNEQ_JUMP = 68;
+    public static final int RGT_JUMP = 69;
+    public static final int RGTE_JUMP = 70;
+    public static final int RLT_JUMP = 71;
+    public static final int RLTE_JUMP = 72;
+    public static final int PAR_FOR = 73;
+    public static final int PAR_NEXT = 74;
+    public static final int IREDUCE_ADD = 75;
+    public static final int IREDUCE_MULT = 76;
+    public static final int IREDUCE_MIN = 77;
+    public static final int IREDUCE_MAX = 78;
+    public static final int RREDUCE_ADD = 79;
+    public static final int RREDUCE_MULT = 80;
+    public static final int RREDUCE_MIN = 81;
+    public static final int RREDUCE_MAX = 82;
+    public static final int ASTORE = 83;
+    public static final int AMOV = 84;
+    public static final int INEWARRAY = 85;
+    public static final int RNEWARRAY = 86;
+    public static final int BNEWARRAY = 87;
+    public static final int ILEN = 88;
+    public static final int RLEN = 89;
+    public static final int BLEN = 90;
+    public static final int IALOAD = 91;
+    public static final int RALOAD = 92;
+    public static final int BALOAD = 93;
+    public static final int IASTORE = 94;
+    public static final int RASTORE = 95;
+    public static final int BASTORE = 96;
+    public static final int IFILL = 97;
+    public static final int RFILL = 98;
+    public static final int BFILL = 99;
+    public static final int ISUM = 100;
+    public static final int RSUM = 101;
+    public static final int IMIN = 102;
+    public static final int RMIN = 103;
+    public static final int IMAX = 104;
+    public static final int RMAX = 105;
+    public static final int IARRAY_ADD = 106;
+    public static final int RARRAY_ADD = 107;
+    public static final int IARRAY_SUB = 108;
+    public static final int RARRAY_SUB = 109;
+    public static final int IARRAY_MULT = 110;
+    public static final int RARRAY_MULT = 111;
+    public static final int IARRAY_DIV = 112;
+    public static final int RARRAY_DIV = 113;
+    public static final int SCONCAT = 114;
+    public static final int IARG = 115;
+    public static final int RARG = 116;
+    public static final int BARG = 117;
+    public static final int SARG = 118;
+    public static final int AARG = 119;
+    public static final int ICALL = 120;
+    public static final int RCALL = 121;
+    public static final int BCALL = 122;
+    public static final int SCALL = 123;
+    public static final int ACALL = 124;
+    public static final int IRET = 125;
+    public static final int RRET = 126;
+    public static final int BRET = 127;
+    public static final int SRET = 128;
+    public static final int ARET = 129;
+
+    // opcodes are the ordinals of Op, checked once when the class is loaded
+    static {
+        for (Op op : Op.values()) {
+            try {
+                Field field = Opcode.class.getField(op.name().substring(3));
+                if (field.getInt(null) != op.ordinal()) {
+                    throw new ExceptionInInitializerError("Opcode out of order: " + op);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError("Missing opcode: " + op);
+            }
+        }
+    }
+
+    private static final int[] OPERAND_TYPES = new int[Op.values().length];
+    private static final int[] RIGHT_OPERAND_TYPES = new int[Op.values().length];
+    private static final int[] RESULT_TYPES = new int[Op.values().length];
+
+    static {
+        signature(Slots.INT, Slots.INT, ISTORE, IMOV, IADD, ISUB, IMULT, IDIV, IPOW, IINC, IDEC, IINC_VAR, IDEC_VAR);
+        signature(Slots.REAL, Slots.REAL, RSTORE, RMOV, RADD, RSUB, RMULT, RDIV, RPOW, RINC, RDEC, RINC_VAR, RDEC_VAR);
+        signature(Slots.BOOL, Slots.BOOL, BSTORE, BMOV, OR, AND, NOT);
+        signature(Slots.STR, Slots.STR, SSTORE, SMOV, SCONCAT);
+        signature(Slots.INT, Slots.REAL, I2R);
+        signature(Slots.INT, Slots.BOOL, IEQ, INEQ, IGT, IGTE, ILT, ILTE);
+        signature(Slots.REAL, Slots.BOOL, REQ, RNEQ, RGT, RGTE, RLT, RLTE);
+        signature(Slots.BOOL, Slots.BOOL, BEQ, BNEQ, BGT, BGTE, BLT, BLTE);
+        signature(Slots.STR, Slots.BOOL, SEQ, SNEQ, SGT, SGTE, SLT, SLTE);
+        signature(Slots.INT, Program.NONE, IPRINT);
+        signature(Slots.REAL, Program.NONE, RPRINT);
+        signature(Slots.BOOL, Program.NONE, BPRINT, IFTRUE_JUMP, IFFALSE_JUMP);
+        signature(Slots.STR, Program.NONE, SPRINT);
+        signature(Slots.INT, Program.NONE, IEQ_JUMP, INEQ_JUMP, IGT_JUMP, IGTE_JUMP, ILT_JUMP, ILTE_JUMP);
+        signature(Slots.REAL, Program.NONE, REQ_JUMP, RNEQ_JUMP, RGT_JUMP, RGTE_JUMP, RLT_JUMP, RLTE_JUMP);
+        signature(Slots.INT, Program.NONE, PAR_FOR, IREDUCE_ADD, IREDUCE_MULT, IREDUCE_MIN, IREDUCE_MAX);
+        signature(Slots.INT, Slots.INT, PAR_NEXT);
+        signature(Slots.REAL, Program.NONE, RREDUCE_ADD, RREDUCE_MULT, RREDUCE_MIN, RREDUCE_MAX);
+        signature(Program.NONE, Program.NONE, JUMP);
+        signature(Slots.ARRAY, Slots.ARRAY, ASTORE, AMOV);
+        signature(Slots.INT, Slots.ARRAY, INEWARRAY, RNEWARRAY, BNEWARRAY);
+        signature(Slots.ARRAY, Slots.INT, ILEN, RLEN, BLEN, ISUM, IMIN, IMAX);
+        signature(Slots.ARRAY, Slots.REAL, RSUM, RMIN, RMAX);
+        signature(Slots.ARRAY, Slots.ARRAY, IARRAY_ADD, RARRAY_ADD, IARRAY_SUB, RARRAY_SUB,
+            IARRAY_MULT, RARRAY_MULT, IARRAY_DIV, RARRAY_DIV);
+        mixedSignature(Slots.ARRAY, Slots.INT, Slots.INT, IALOAD);
+        mixedSignature(Slots.ARRAY, Slots.INT, Slots.REAL, RALOAD);
+        mixedSignature(Slots.ARRAY, Slots.INT, Slots.BOOL, BALOAD);
+        mixedSignature(Slots.INT, Slots.INT, Program.NONE, IASTORE);
+        mixedSignature(Slots.REAL, Slots.INT, Program.NONE, RASTORE);
+        mixedSignature(Slots.BOOL, Slots.INT, Program.NONE, BASTORE);
+        mixedSignature(Slots.ARRAY, Slots.INT, Slots.ARRAY, IFILL);
+        mixedSignature(Slots.ARRAY, Slots.REAL, Slots.ARRAY, RFILL);
+        mixedSignature(Slots.ARRAY, Slots.BOOL, Slots.ARRAY, BFILL);
+        signature(Slots.INT, Program.NONE, IARG, IRET);
+        signature(Slots.REAL, Program.NONE, RARG, RRET);
+        signature(Slots.BOOL, Program.NONE, BARG, BRET);
+        signature(Slots.STR, Program.NONE, SARG, SRET);
+        signature(Slots.ARRAY, Program.NONE, AARG, ARET);
+        signature(Program.NONE, Slots.INT, ICALL);
+        signature(Program.NONE, Slots.REAL, RCALL);
+        signature(Program.NONE, Slots.BOOL, BCALL);
+        signature(Program.NONE, Slots.STR, SCALL);
+        signature(Program.NONE, Slots.ARRAY, ACALL);
+    }
+
+    private Opcode() {
+    }
+
+    private static void signature(int operandType, int resultType, int... opcodes) {
+        mixedSignature(operandType, operandType, resultType, opcodes);
+    }
+
+    // for opcodes whose operands have different types, such as an array and an index
+    private static void mixedSignature(int operandType, int rightOperandType, int resultType, int... opcodes) {
+        for (int opcode : opcodes) {
+            OPERAND_TYPES[opcode] = operandType;
+            RIGHT_OPERAND_TYPES[opcode] = rightOperandType;
+            RESULT_TYPES[opcode] = resultType;
+        }
+    }
+
+    public static int operandType(int opcode) {
+        return OPERAND_TYPES[opcode];
+    }
+
+    public static int rightOperandType(int opcode) {
+        return RIGHT_OPERAND_TYPES[opcode];
+    }
+
+    public static int resultType(int opcode) {
+        return RESULT_TYPES[opcode];
+    }
+
+    public static int of(Op op) {
+        return op.ordinal();
+    }
+
+    public static boolean isJump(int opcode) {
+        return opcode == JUMP || opcode == IFTRUE_JUMP || opcode == IFFALSE_JUMP || isCompareJump(opcode)
+            || opcode == PAR_FOR || opcode == PAR_NEXT;
+    }
+
+    // fused compare-and-branch: jumps when a and b are in the relation
+    public static boolean isCompareJump(int opcode) {
+        return opcode >= IEQ_JUMP && opcode <= RLTE_JUMP;
+    }
+
+    public static boolean isStore(int opcode) {
+        return (opcode >= ISTORE && opcode <= SSTORE) || opcode == ASTORE;
+    }
+
+    // stores, the fused in-place increments and the step of a parallel for write a variable rather than a temp
+    public static boolean writesVariable(int opcode) {
+        return isStore(opcode) || (opcode >= IINC_VAR && opcode <= RDEC_VAR) || opcode == PAR_NEXT;
+    }
+
+    // `parallel for` code: PAR_FOR forks the loop, PAR_NEXT steps its index, the reductions follow the loop.
+    // Their first operand names the index or reduction variable, so it must stay a variable slot.
+    public static boolean isParallel(int opcode) {
+        return opcode >= PAR_FOR && opcode <= RREDUCE_MAX;
+    }
+
+    public static boolean isReduction(int opcode) {
+        return opcode >= IREDUCE_ADD && opcode <= RREDUCE_MAX;
+    }
+
+    // writes the element at index b of the array variable in dests with a; the variable is read, not written
+    public static boolean isElementStore(int opcode) {
+        return opcode >= IASTORE && opcode <= BASTORE;
+    }
+
+    // ARG pushes an argument, CALL enters the function numbered a and writes what it returns to dests, RET
+    // leaves the function with a; all of them work on the runner's call stack
+    public static boolean usesCallStack(int opcode) {
+        return opcode >= IARG && opcode <= ARET;
+    }
+
+    public static boolean isArgument(int opcode) {
+        return opcode >= IARG && opcode <= AARG;
+    }
+
+    public static boolean isCall(int opcode) {
+        return opcode >= ICALL && opcode <= ACALL;
+    }
+
+    public static boolean isReturn(int opcode) {
+        return opcode >= IRET && opcode <= ARET;
+    }
+
+    // allocates an array or reads or writes its elements; lengths are left out because they never change
+    public static boolean isArrayAccess(int opcode) {
+        return opcode >= INEWARRAY && opcode <= RARRAY_DIV && !(opcode >= ILEN && opcode <= BLEN);
+    }
+}
@@ -0,0 +1,19 @@
+package com.jc.interpreter;
+
+public class Operand {
+    public int type;
+    public int slot;
+    public int intValue;
+    public double realValue;
+    public boolean boolValue;
+    public Object strValue;
+
+    public Operand(int type, int slot) {
+        this.type = type;
+        this.slot = slot;
+    }
+
+    public boolean isLiteral() {
+        return slot < 0;
+    }
+}
@@ -0,0 +1,188 @@
+package com.jc.interpreter;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public class Output {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_FLUSH_SIZE = 1 << 13;
+
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_INT = String.valueOf(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private WritableByteChannel channel;
+    private final FlushPolicy policy;
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private final int flushSize;
+    private final byte[] newline;
+    private final StringBuilder scratch;
+    private final Charset charset;
+    private int position;
+
+    public Output(WritableByteChannel channel, FlushPolicy policy) {
+        this(channel, policy, DEFAULT_CAPACITY, DEFAULT_FLUSH_SIZE);
+    }
+
+    public Output(WritableByteChannel channel, FlushPolicy policy, int capacity, int flushSize) {
+        this.channel = channel;
+        this.policy = policy.resolve();
+        this.bytes = new byte[Math.max(capacity, 64)];
+        this.buffer = ByteBuffer.wrap(bytes);
+        this.flushSize = Math.min(flushSize, bytes.length);
+        this.newline = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+        this.scratch = new StringBuilder(32);
+        this.charset = Charset.defaultCharset();
+    }
+
+    public static Output standard(FlushPolicy policy) {
+        return new Output(new FileOutputStream(FileDescriptor.out).getChannel(), policy);
+    }
+
+    // sends later output to another channel; anything still buffered is dropped, so flush first
+    public void setChannel(WritableByteChannel channel) {
+        this.channel = channel;
+        position = 0;
+    }
+
+    public void printInt(int value) {
+        ensure(12);
+        if (value == Integer.MIN_VALUE) {
+            System.arraycopy(MIN_INT, 0, bytes, position, MIN_INT.length);
+            position += MIN_INT.length;
+        }
+        else {
+            if (value < 0) {
+                bytes[position++] = '-';
+                value = -value;
+            }
+            int end = position + digits(value);
+            for (int i = end - 1; i >= position; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position = end;
+        }
+        endLine();
+    }
+
+    public void printReal(double value) {
+        scratch.setLength(0);
+        scratch.append(value);
+        int length = scratch.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            bytes[position++] = (byte) scratch.charAt(i);
+        }
+        endLine();
+    }
+
+    public void printBool(boolean value) {
+        write(value ? TRUE : FALSE);
+        endLine();
+    }
+
+    public void printStr(Object value) {
+        if (value == null) {
+            write(NULL);
+        }
+        else if (value instanceof Rope) {
+            // piece by piece, so printing a long rope never builds its String
+            Rope rope = (Rope) value;
+            for (int i = 0; i < rope.pieceCount(); i++) {
+                writeChars(rope.piece(i));
+            }
+        }
+        else {
+            writeChars(value instanceof CharSequence ? (CharSequence) value : value.toString());
+        }
+        endLine();
+    }
+
+    // a process stopped by a signal runs its shutdown hooks but not the finally blocks that flush, so the
+    // command line and compiled jars flush from a hook too; after a normal exit it finds nothing to write
+    public void flushOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "jc-flush"));
+    }
+
+    // synchronized so the shutdown hook and a run still printing never write the same bytes twice
+    public synchronized void flush() {
+        if (position == 0) return;
+        buffer.clear().limit(position);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+
+    private void writeChars(CharSequence chars) {
+        if (!writeAscii(chars)) {
+            write(charset.encode(CharBuffer.wrap(chars)));
+        }
+    }
+
+    private boolean writeAscii(CharSequence chars) {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            if (chars.charAt(i) >= 0x80) return false;
+        }
+
+        int i = 0;
+        while (i < length) {
+            if (position == bytes.length) flush();
+            int chunk = Math.min(length - i, bytes.length - position);
+            for (int end = i + chunk; i < end; i++) {
+                bytes[position++] = (byte) chars.charAt(i);
+            }
+        }
+        return true;
+    }
+
+    private void write(byte[] source) {
+        ensure(source.length);
+        System.arraycopy(source, 0, bytes, position, source.length);
+        position += source.length;
+    }
+
+    private void write(ByteBuffer source) {
+        while (source.hasRemaining()) {
+            if (position == bytes.length) flush();
+            int chunk = Math.min(source.remaining(), bytes.length - position);
+            source.get(bytes, position, chunk);
+            position += chunk;
+        }
+    }
+
+    private void endLine() {
+        write(newline);
+        if (policy == FlushPolicy.LINE || (policy == FlushPolicy.SIZE && position >= flushSize)) {
+            flush();
+        }
+    }
+
+    private void ensure(int length) {
+        if (position + length > bytes.length) flush();
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,94 @@
+package com.jc.interpreter;
+
+// a `parallel for` as the runner forks it: the slot of its index, the first instruction of its body, the
+// PAR_NEXT closing it and the slots it reduces. Parallel loops do not nest, so the first PAR_NEXT after the PAR_FOR is the loop's own,
+// and its reductions are the instructions right after it.
+final class ParallelLoop {
+    final int index;
+    final int head;
+    final int next;
+    private final int[] reductions;
+    private final int[] slots;
+
+    ParallelLoop(Program program, int pc) {
+        index = program.a[pc];
+        head = pc + 1;
+
+        // none when the body never finishes an iteration and the optimizer dropped the step as unreachable
+        int next = head;
+        while (next < program.size() && program.ops[next] != Opcode.PAR_NEXT) next++;
+        this.next = next < program.size() ? next : -1;
+
+        // a reduction the optimizer proved constant has no slot left to combine
+        int count = 0;
+        for (int i = next + 1; i < program.size() && Opcode.isReduction(program.ops[i]); i++) {
+            if (!Program.isConst(program.aKinds[i])) count++;
+        }
+        reductions = new int[count];
+        slots = new int[count];
+        count = 0;
+        for (int i = next + 1; i < program.size() && Opcode.isReduction(program.ops[i]); i++) {
+            if (Program.isConst(program.aKinds[i])) continue;
+            reductions[count] = program.ops[i];
+            slots[count++] = program.a[i];
+        }
+    }
+
+    // every chunk starts its reductions from the identity of the operation
+    void begin(Frame frame) {
+        for (int i = 0; i < reductions.length; i++) {
+            switch (reductions[i]) {
+                case Opcode.IREDUCE_ADD: frame.ints[slots[i]] = 0; break;
+                case Opcode.IREDUCE_MULT: frame.ints[slots[i]] = 1; break;
+                case Opcode.IREDUCE_MIN: frame.ints[slots[i]] = Integer.MAX_VALUE; break;
+                case Opcode.IREDUCE_MAX: frame.ints[slots[i]] = Integer.MIN_VALUE; break;
+                case Opcode.RREDUCE_ADD: frame.reals[slots[i]] = 0; break;
+                case Opcode.RREDUCE_MULT: frame.reals[slots[i]] = 1; break;
+                case Opcode.RREDUCE_MIN: frame.reals[slots[i]] = Double.POSITIVE_INFINITY; break;
+                case Opcode.RREDUCE_MAX: frame.reals[slots[i]] = Double.NEGATIVE_INFINITY; break;
+            }
+        }
+    }
+
+    // folds the chunks' partial results into the value each variable had before the loop, always in chunk
+    // order so real sums come out the same on every run, and leaves them in the last chunk's frame
+    void combine(Frame before, Runner[] chunks, int count) {
+        Frame last = chunks[count - 1].getFrame();
+        for (int i = 0; i < reductions.length; i++) {
+            int op = reductions[i];
+            int slot = slots[i];
+            if (op <= Opcode.IREDUCE_MAX) {
+                int value = before.ints[slot];
+                for (int chunk = 0; chunk < count; chunk++) {
+                    value = combine(op, value, chunks[chunk].getFrame().ints[slot]);
+                }
+                last.ints[slot] = value;
+            }
+            else {
+                double value = before.reals[slot];
+                for (int chunk = 0; chunk < count; chunk++) {
+                    value = combine(op, value, chunks[chunk].getFrame().reals[slot]);
+                }
+                last.reals[slot] = value;
+            }
+        }
+    }
+
+    private static int combine(int op, int a, int b) {
+        switch (op) {
+            case Opcode.IREDUCE_ADD: return a + b;
+            case Opcode.IREDUCE_MULT: return a * b;
+            case Opcode.IREDUCE_MIN: return Math.min(a, b);
+            default: return Math.max(a, b);
+        }
+    }
+
+    private static double combine(int op, double a, double b) {
+        switch (op) {
+            case Opcode.RREDUCE_ADD: return a + b;
+            case Opcode.RREDUCE_MULT: return a * b;
+            case Opcode.RREDUCE_MIN: return Math.min(a, b);
+            default: return Math.max(a, b);
+        }
+    }
+}
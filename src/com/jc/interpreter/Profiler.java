@@ -0,0 +1,181 @@
+package com.jc.interpreter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class Profiler {
+    private static final long SAMPLE_INTERVAL = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int REPORT_ROWS = 15;
+
+    private final Program program;
+    final long[] counts;
+    private final long[] times;
+    volatile int pc;
+
+    private volatile boolean running;
+    private Thread sampler;
+    private long started;
+    private long elapsed;
+    private long samples;
+
+    public Profiler(Program program) {
+        this.program = program;
+        this.counts = new long[program.size()];
+        this.times = new long[program.size()];
+        this.pc = -1;
+    }
+
+    void start() {
+        running = true;
+        started = System.nanoTime();
+        sampler = new Thread(this::sample, "jc-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    void stop() {
+        running = false;
+        elapsed = System.nanoTime() - started;
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // charges the time since the previous sample to the instruction running now
+    private void sample() {
+        long last = System.nanoTime();
+        while (running) {
+            LockSupport.parkNanos(SAMPLE_INTERVAL);
+            long now = System.nanoTime();
+            int current = pc;
+            if (current >= 0) {
+                times[current] += now - last;
+                samples++;
+            }
+            last = now;
+        }
+    }
+
+    public void report(PrintStream out) {
+        long total = 0;
+        for (long count : counts) total += count;
+
+        out.printf("Profile: %d instructions in %.1f ms (%d samples)%n", total, elapsed / 1e6, samples);
+        out.println();
+        out.println("Hot lines:");
+        print(out, "line", byLine(), total);
+        out.println();
+        out.println("Hot opcodes:");
+        print(out, "opcode", byOpcode(), total);
+        if (program.functions.length > 0) {
+            out.println();
+            out.println("Hot functions:");
+            print(out, "function", byFunction(), total);
+        }
+    }
+
+    // one tab-separated row per source line, opcode, function and instruction: kind, key, count, nanoseconds
+    public void write(Path path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("# kind\tkey\tcount\tnanos");
+            for (Entry entry : byLine()) {
+                writer.printf("line\t%s\t%d\t%d%n", entry.key, entry.count, entry.time);
+            }
+            for (Entry entry : byOpcode()) {
+                writer.printf("op\t%s\t%d\t%d%n", entry.key, entry.count, entry.time);
+            }
+            for (Entry entry : byFunction()) {
+                writer.printf("function\t%s\t%d\t%d%n", entry.key, entry.count, entry.time);
+            }
+            for (int i = 0; i < counts.length; i++) {
+                writer.printf("pc\t%d\t%d\t%d%n", i, counts[i], times[i]);
+            }
+        }
+    }
+
+    private void print(PrintStream out, String title, List<Entry> entries, long total) {
+        long totalTime = 0;
+        for (Entry entry : entries) totalTime += entry.time;
+
+        out.printf("  %-12s %14s %7s %12s %7s%n", title, "count", "%", "time", "%");
+        for (int i = 0; i < entries.size() && i < REPORT_ROWS; i++) {
+            Entry entry = entries.get(i);
+            out.printf("  %-12s %14d %6.1f%% %9.1f ms %6.1f%%%n", entry.key, entry.count,
+                percent(entry.count, total), entry.time / 1e6, percent(entry.time, totalTime));
+        }
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    private List<Entry> byLine() {
+        int maxLine = 0;
+        for (int line : program.lines) maxLine = Math.max(maxLine, line);
+
+        Entry[] lines = new Entry[maxLine + 1];
+        for (int i = 0; i < counts.length; i++) {
+            int line = program.lines[i];
+            if (lines[line] == null) lines[line] = new Entry(line == 0 ? "?" : String.valueOf(line));
+            lines[line].add(counts[i], times[i]);
+        }
+        return sorted(lines);
+    }
+
+    private List<Entry> byOpcode() {
+        Op[] names = Op.values();
+        Entry[] opcodes = new Entry[names.length];
+        for (int i = 0; i < counts.length; i++) {
+            int op = program.ops[i];
+            if (opcodes[op] == null) opcodes[op] = new Entry(names[op].name().substring(3));
+            opcodes[op].add(counts[i], times[i]);
+        }
+        return sorted(opcodes);
+    }
+
+    // the instructions of a function's own code, not of the functions it calls
+    private List<Entry> byFunction() {
+        Entry[] functions = new Entry[program.functions.length];
+        for (int k = 0; k < functions.length; k++) {
+            Function function = program.functions[k];
+            functions[k] = new Entry(function.name);
+            for (int i = function.entry; i < function.entry + function.length; i++) {
+                functions[k].add(counts[i], times[i]);
+            }
+        }
+        return sorted(functions);
+    }
+
+    private static List<Entry> sorted(Entry[] entries) {
+        List<Entry> list = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry != null) list.add(entry);
+        }
+        list.sort((x, y) -> x.time != y.time ? Long.compare(y.time, x.time) : Long.compare(y.count, x.count));
+        return list;
+    }
+
+    private static class Entry {
+        final String key;
+        long count;
+        long time;
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        void add(long count, long time) {
+            this.count += count;
+            this.time += time;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.jc.interpreter;
+
+public class Program {
+    public static final int CONST = 1;
+
+    public static final int INT_SLOT = Slots.INT << 1;
+    public static final int INT_CONST = INT_SLOT | CONST;
+    public static final int REAL_SLOT = Slots.REAL << 1;
+    public static final int REAL_CONST = REAL_SLOT | CONST;
+    public static final int BOOL_SLOT = Slots.BOOL << 1;
+    public static final int BOOL_CONST = BOOL_SLOT | CONST;
+    public static final int STR_SLOT = Slots.STR << 1;
+    public static final int STR_CONST = STR_SLOT | CONST;
+    public static final int ARRAY_SLOT = Slots.ARRAY << 1;
+
+    public static final int NONE = -1;
+
+    public int[] ops;
+    public int[] aKinds;
+    public int[] a;
+    public int[] bKinds;
+    public int[] b;
+    public int[] dests;
+    public int[] lines;
+
+    public int[] intPool;
+    public double[] realPool;
+    public boolean[] boolPool;
+    public Object[] strPool;
+
+    public int intSlots;
+    public int realSlots;
+    public int boolSlots;
+    public int strSlots;
+    public int arraySlots;
+
+    // indexed by the a operand of CALL
+    public Function[] functions = new Function[0];
+
+    public int size() {
+        return ops.length;
+    }
+
+    public int slotCount() {
+        return intSlots + realSlots + boolSlots + strSlots + arraySlots;
+    }
+
+    public Frame newFrame() {
+        return new Frame(intSlots, realSlots, boolSlots, strSlots, arraySlots);
+    }
+
+    public static int typeOfKind(int kind) {
+        return kind >> 1;
+    }
+
+    public static boolean isConst(int kind) {
+        return (kind & CONST) != 0;
+    }
+}
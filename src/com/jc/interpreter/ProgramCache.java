@@ -0,0 +1,332 @@
+package com.jc.interpreter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+public class ProgramCache {
+    // bump whenever code generation, optimization or lowering changes what a source compiles to
+    public static final String COMPILER_VERSION = "jc-21";
+
+    private static final int MAGIC = 0x4A434350;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HASH_SIZE = 32;
+    private static final String EXTENSION = ".jcc";
+
+    private final Path directory;
+
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path pathOf(byte[] hash) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return directory.resolve(name.append(EXTENSION).toString());
+    }
+
+    public static byte[] hash(byte[] source, int optimizationLevel) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(COMPILER_VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) FORMAT_VERSION);
+            digest.update((byte) optimizationLevel);
+            digest.update(source);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // returns null when there is no usable entry; a corrupt or stale one is deleted
+    public Program load(byte[] hash) {
+        Path path = pathOf(hash);
+        if (!Files.isRegularFile(path)) return null;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Program program = read(buffer, hash);
+            if (program != null) return program;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // falls through to rebuilding the entry
+        }
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // the next store replaces it anyway
+        }
+        return null;
+    }
+
+    // writes through a temporary file so a concurrent run never maps a half-written entry
+    public void store(byte[] hash, Program program) {
+        ByteBuffer buffer = write(program, hash);
+        if (buffer == null) return;
+
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "jc", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                Files.move(temp, pathOf(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // caching is best effort; the program already ran from source
+        }
+    }
+
+    private ByteBuffer write(Program program, byte[] hash) {
+        byte[][] strings = new byte[program.strPool.length][];
+        int stringBytes = 0;
+        for (int i = 0; i < strings.length; i++) {
+            if (!(program.strPool[i] instanceof String)) return null;
+            strings[i] = ((String) program.strPool[i]).getBytes(StandardCharsets.UTF_8);
+            stringBytes += 4 + strings[i].length;
+        }
+
+        byte[][] names = new byte[program.functions.length][];
+        int functionBytes = 0;
+        for (int k = 0; k < names.length; k++) {
+            Function function = program.functions[k];
+            names[k] = function.name.getBytes(StandardCharsets.UTF_8);
+            functionBytes += 4 + names[k].length + 3 * 4 + 1 + 8 * function.parameterTypes.length + 2 * 4 * Slots.TYPES;
+        }
+
+        int size = program.size();
+        int length = 4 + 4 + HASH_SIZE + 5 * 4 + 4 + 7 * 4 * size
+            + 4 + 4 * program.intPool.length
+            + 4 + 8 * program.realPool.length
+            + 4 + program.boolPool.length
+            + 4 + stringBytes
+            + 4 + functionBytes
+            + 8;
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.put(hash);
+        buffer.putInt(program.intSlots);
+        buffer.putInt(program.realSlots);
+        buffer.putInt(program.boolSlots);
+        buffer.putInt(program.strSlots);
+        buffer.putInt(program.arraySlots);
+
+        buffer.putInt(size);
+        for (int[] array : new int[][] { program.ops, program.aKinds, program.a, program.bKinds, program.b, program.dests, program.lines }) {
+            for (int value : array) buffer.putInt(value);
+        }
+
+        buffer.putInt(program.intPool.length);
+        for (int value : program.intPool) buffer.putInt(value);
+        buffer.putInt(program.realPool.length);
+        for (double value : program.realPool) buffer.putDouble(value);
+        buffer.putInt(program.boolPool.length);
+        for (boolean value : program.boolPool) buffer.put((byte) (value ? 1 : 0));
+        buffer.putInt(strings.length);
+        for (byte[] string : strings) {
+            buffer.putInt(string.length);
+            buffer.put(string);
+        }
+
+        buffer.putInt(names.length);
+        for (int k = 0; k < names.length; k++) {
+            Function function = program.functions[k];
+            buffer.putInt(names[k].length);
+            buffer.put(names[k]);
+            buffer.putInt(function.entry);
+            buffer.putInt(function.length);
+            buffer.put((byte) (function.recursive ? 1 : 0));
+            buffer.putInt(function.parameterTypes.length);
+            for (int type : function.parameterTypes) buffer.putInt(type);
+            for (int slot : function.parameterSlots) buffer.putInt(slot);
+            for (int base : function.slotBases) buffer.putInt(base);
+            for (int count : function.slotCounts) buffer.putInt(count);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        return buffer.flip();
+    }
+
+    private Program read(ByteBuffer buffer, byte[] hash) {
+        if (buffer.remaining() < 8) return null;
+
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate().limit(buffer.limit() - 8);
+        crc.update(content);
+        if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) return null;
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+        byte[] stored = new byte[HASH_SIZE];
+        buffer.get(stored);
+        if (!MessageDigest.isEqual(stored, hash)) return null;
+
+        Program program = new Program();
+        program.intSlots = count(buffer);
+        program.realSlots = count(buffer);
+        program.boolSlots = count(buffer);
+        program.strSlots = count(buffer);
+        program.arraySlots = count(buffer);
+
+        int size = count(buffer);
+        program.ops = ints(buffer, size);
+        program.aKinds = ints(buffer, size);
+        program.a = ints(buffer, size);
+        program.bKinds = ints(buffer, size);
+        program.b = ints(buffer, size);
+        program.dests = ints(buffer, size);
+        program.lines = ints(buffer, size);
+
+        program.intPool = ints(buffer, count(buffer));
+        program.realPool = new double[count(buffer)];
+        for (int i = 0; i < program.realPool.length; i++) program.realPool[i] = buffer.getDouble();
+        program.boolPool = new boolean[count(buffer)];
+        for (int i = 0; i < program.boolPool.length; i++) program.boolPool[i] = buffer.get() != 0;
+        program.strPool = new Object[count(buffer)];
+        for (int i = 0; i < program.strPool.length; i++) {
+            byte[] bytes = new byte[count(buffer)];
+            buffer.get(bytes);
+            program.strPool[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        program.functions = new Function[count(buffer)];
+        for (int k = 0; k < program.functions.length; k++) {
+            byte[] name = new byte[count(buffer)];
+            buffer.get(name);
+            int entry = buffer.getInt();
+            int length = buffer.getInt();
+            boolean recursive = buffer.get() != 0;
+            int parameters = count(buffer);
+            int[] types = ints(buffer, parameters);
+            int[] parameterSlots = ints(buffer, parameters);
+            int[] bases = ints(buffer, Slots.TYPES);
+            int[] counts = ints(buffer, Slots.TYPES);
+            if (!isValidFunction(program, entry, length, types, parameterSlots, bases, counts)) return null;
+            program.functions[k] = new Function(new String(name, StandardCharsets.UTF_8), entry, length, recursive,
+                types, parameterSlots, bases, counts);
+        }
+
+        if (buffer.remaining() != 8 || !isValid(program)) return null;
+        return program;
+    }
+
+    private static int count(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) throw new IllegalArgumentException("Bad count: " + count);
+        return count;
+    }
+
+    private static int[] ints(ByteBuffer buffer, int size) {
+        int[] array = new int[size];
+        buffer.asIntBuffer().get(array);
+        buffer.position(buffer.position() + 4 * size);
+        return array;
+    }
+
+    // checks every operand, destination and jump target is in range, every PAR_FOR is closed by a PAR_NEXT
+    // on the same index slot, every element store names an array slot, every CALL names a function and every
+    // RET ends one, so a bad entry cannot crash the runner
+    private static boolean isValid(Program program) {
+        int size = program.size();
+        int opCount = Op.values().length;
+        boolean parallel = false;
+        for (int pc = 0; pc < size; pc++) {
+            int op = program.ops[pc];
+            if (op < 0 || op >= opCount) return false;
+            if (op == Opcode.PAR_FOR || op == Opcode.PAR_NEXT) {
+                if (program.aKinds[pc] != Program.INT_SLOT || parallel != (op == Opcode.PAR_NEXT)) return false;
+                parallel = op == Opcode.PAR_FOR;
+            }
+            if (!isValidOperand(program, program.aKinds[pc], program.a[pc])) return false;
+            if (!isValidOperand(program, program.bKinds[pc], program.b[pc])) return false;
+
+            if (Opcode.isCall(op) && (program.a[pc] < 0 || program.a[pc] >= program.functions.length)) return false;
+            if (Opcode.isReturn(op) && !endsFunction(program, pc)) return false;
+
+            int dest = program.dests[pc];
+            if (Opcode.isJump(op)) {
+                if (dest < 0 || dest > size) return false;
+            }
+            else if (Opcode.isElementStore(op)) {
+                if (dest < 0 || dest >= program.arraySlots) return false;
+            }
+            else if (Opcode.resultType(op) != Program.NONE) {
+                if (dest < 0 || dest >= slotCount(program, Opcode.resultType(op))) return false;
+            }
+        }
+        return !parallel;
+    }
+
+    private static boolean endsFunction(Program program, int pc) {
+        for (Function function : program.functions) {
+            if (pc == function.entry + function.length - 1) return true;
+        }
+        return false;
+    }
+
+    // the function's code lies in the program, ends with its RET, and its parameters and block of slots are in
+    // the frame
+    private static boolean isValidFunction(Program program, int entry, int length, int[] types, int[] parameterSlots,
+        int[] bases, int[] counts) {
+
+        if (entry < 0 || length <= 0 || entry > program.size() - length) return false;
+        if (!Opcode.isReturn(program.ops[entry + length - 1])) return false;
+        for (int type = 0; type < Slots.TYPES; type++) {
+            if (bases[type] < 0 || counts[type] < 0 || bases[type] > slotCount(program, type) - counts[type]) return false;
+        }
+        for (int p = 0; p < types.length; p++) {
+            if (types[p] < 0 || types[p] >= Slots.TYPES) return false;
+            if (parameterSlots[p] < -1 || parameterSlots[p] >= slotCount(program, types[p])) return false;
+        }
+        return true;
+    }
+
+    private static boolean isValidOperand(Program program, int kind, int index) {
+        if (kind == Program.NONE) return true;
+        if (kind < 0 || kind > Program.ARRAY_SLOT) return false;
+
+        int type = Program.typeOfKind(kind);
+        int limit = Program.isConst(kind) ? poolSize(program, type) : slotCount(program, type);
+        return index >= 0 && index < limit;
+    }
+
+    private static int slotCount(Program program, int type) {
+        switch (type) {
+            case Slots.INT: return program.intSlots;
+            case Slots.REAL: return program.realSlots;
+            case Slots.BOOL: return program.boolSlots;
+            case Slots.STR: return program.strSlots;
+            default: return program.arraySlots;
+        }
+    }
+
+    private static int poolSize(Program program, int type) {
+        switch (type) {
+            case Slots.INT: return program.intPool.length;
+            case Slots.REAL: return program.realPool.length;
+            case Slots.BOOL: return program.boolPool.length;
+            case Slots.STR: return program.strPool.length;
+            default: return 0;
+        }
+    }
+}
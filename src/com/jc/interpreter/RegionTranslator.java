@@ -0,0 +1,538 @@
+package com.jc.interpreter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.jc.bytecode.Code;
+import com.jc.bytecode.Label;
+
+import static com.jc.bytecode.JvmOpcodes.*;
+
+class RegionTranslator {
+    private static final String OBJECT = "java/lang/Object";
+    private static final String INTS = "[I";
+    private static final String REALS = "[D";
+    private static final String BOOLS = "[Z";
+    private static final String ROPE = "com/jc/interpreter/Rope";
+    private static final String BUDGET = "com/jc/interpreter/Budget";
+
+    private final Program program;
+    private final int start;
+    private final int end;
+    private final Code code;
+    private final int[][] locals;
+    private final boolean[][] written;
+    private final Label[] labels;
+    private final LinkedHashMap<Integer, Label> exits;
+    private final LinkedHashMap<Integer, Label> backEdges;
+    private final int outputLocal;
+    private final int fuelLocal;
+    private int nextLocal;
+
+    RegionTranslator(Program program, int start, int end, Code code) {
+        this(program, start, end, code, LoopCompiler.OUTPUT_LOCAL, LoopCompiler.FUEL_LOCAL);
+    }
+
+    // a fuelLocal below zero leaves out the fuel and allocation checks, for code that runs to the end without
+    // the runner
+    RegionTranslator(Program program, int start, int end, Code code, int outputLocal, int fuelLocal) {
+        this.program = program;
+        this.start = start;
+        this.end = end;
+        this.code = code;
+        this.locals = new int[][] {
+            filled(program.intSlots), filled(program.realSlots), filled(program.boolSlots), filled(program.strSlots),
+            filled(program.arraySlots)
+        };
+        this.written = new boolean[][] {
+            new boolean[program.intSlots], new boolean[program.realSlots],
+            new boolean[program.boolSlots], new boolean[program.strSlots], new boolean[program.arraySlots]
+        };
+        this.labels = new Label[end - start + 1];
+        this.exits = new LinkedHashMap<>();
+        this.backEdges = new LinkedHashMap<>();
+        this.outputLocal = outputLocal;
+        this.fuelLocal = fuelLocal;
+    }
+
+    private static int[] filled(int size) {
+        int[] array = new int[size];
+        Arrays.fill(array, -1);
+        return array;
+    }
+
+    boolean isSupported() {
+        for (int pc = start; pc <= end; pc++) {
+            if (Opcode.isParallel(program.ops[pc])) return false;
+            // calls go through the runner's call stack, which compiled code has no access to
+            if (Opcode.usesCallStack(program.ops[pc])) return false;
+            if (Opcode.operandType(program.ops[pc]) == Slots.STR) {
+                if (isOpaqueConstant(program.aKinds[pc], program.a[pc])) return false;
+                if (isOpaqueConstant(program.bKinds[pc], program.b[pc])) return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isOpaqueConstant(int kind, int index) {
+        return kind != Program.NONE && Program.isConst(kind) && !(program.strPool[index] instanceof String);
+    }
+
+    // gives every slot the region touches a JVM local and reports it to the frame layout
+    int assignLocals(int firstLocal) {
+        nextLocal = firstLocal;
+        for (int pc = start; pc <= end; pc++) {
+            int op = program.ops[pc];
+            if (program.aKinds[pc] != Program.NONE && !Program.isConst(program.aKinds[pc])) {
+                assign(Opcode.operandType(op), program.a[pc]);
+            }
+            if (program.bKinds[pc] != Program.NONE && !Program.isConst(program.bKinds[pc])) {
+                assign(Opcode.rightOperandType(op), program.b[pc]);
+            }
+            if (Opcode.isElementStore(op)) {
+                assign(Slots.ARRAY, program.dests[pc]);
+            }
+            int resultType = Opcode.resultType(op);
+            // PAR_NEXT's result is its index, which is operand a; its dests is the jump target
+            if (resultType != Program.NONE && !Opcode.isJump(op)) {
+                assign(resultType, program.dests[pc]);
+                written[resultType][program.dests[pc]] = true;
+            }
+        }
+        return nextLocal;
+    }
+
+    private void assign(int type, int slot) {
+        if (locals[type][slot] >= 0) return;
+        locals[type][slot] = newLocal(type);
+    }
+
+    // a local for a value of the given type that lives in no slot, after the ones handed out so far
+    int newLocal(int type) {
+        int local = nextLocal;
+        nextLocal += type == Slots.REAL ? 2 : 1;
+
+        if (type == Slots.REAL) code.addFrameLocal(Code.ITEM_DOUBLE, null);
+        else if (type == Slots.STR || type == Slots.ARRAY) code.addFrameLocal(Code.ITEM_OBJECT, OBJECT);
+        else code.addFrameLocal(Code.ITEM_INTEGER, null);
+        return local;
+    }
+
+    int localCount() {
+        return nextLocal;
+    }
+
+    int localOf(int type, int slot) {
+        return locals[type][slot];
+    }
+
+    boolean isWritten(int type, int slot) {
+        return written[type][slot];
+    }
+
+    Map<Integer, Label> exits() {
+        return exits;
+    }
+
+    void translate() {
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new Label();
+        }
+
+        for (int pc = start; pc <= end; pc++) {
+            code.mark(labels[pc - start]);
+            translate(pc);
+        }
+
+        Label tail = new Label();
+        code.mark(tail);
+        code.jump(GOTO, target(end + 1));
+
+        // taken backward jumps spend fuel like the runner's back-edges do, out of line so the loop body
+        // falls through unchanged; when it runs out the loop exits to its head and the runner takes over
+        for (Map.Entry<Integer, Label> backEdge : backEdges.entrySet()) {
+            int pc = backEdge.getKey();
+            int head = program.dests[pc];
+            code.mark(backEdge.getValue());
+            code.local(ILOAD, fuelLocal);
+            code.iconst(pc - head + 1);
+            code.op(ISUB);
+            code.local(ISTORE, fuelLocal);
+            code.local(ILOAD, fuelLocal);
+            code.jump(IFLT, exit(head));
+            code.jump(GOTO, labels[head - start]);
+        }
+    }
+
+    Label target(int pc) {
+        if (pc >= start && pc <= end) return labels[pc - start];
+        return exit(pc);
+    }
+
+    Label exit(int pc) {
+        return exits.computeIfAbsent(pc, key -> new Label());
+    }
+
+    // where the jump at pc goes: through its fuel check when it jumps back into the region
+    Label jumpTarget(int pc) {
+        int dest = program.dests[pc];
+        if (dest > pc || dest < start || fuelLocal < 0) return target(dest);
+        return backEdges.computeIfAbsent(pc, key -> new Label());
+    }
+
+    void translate(int pc) {
+        int op = program.ops[pc];
+
+        switch (op) {
+            case Opcode.ISTORE:
+            case Opcode.IMOV:
+            case Opcode.RSTORE:
+            case Opcode.RMOV:
+            case Opcode.BSTORE:
+            case Opcode.BMOV:
+            case Opcode.SSTORE:
+            case Opcode.SMOV:
+            case Opcode.ASTORE:
+            case Opcode.AMOV:
+                loadA(pc);
+                store(pc);
+                break;
+            case Opcode.I2R:
+                loadA(pc);
+                code.op(I2D);
+                store(pc);
+                break;
+
+            case Opcode.IADD: binary(pc, IADD); break;
+            case Opcode.RADD: binary(pc, DADD); break;
+            case Opcode.SCONCAT:
+                if (fuelLocal >= 0) {
+                    // the result shares the characters of its left operand, so only the right one is new
+                    code.local(ALOAD, LoopCompiler.FRAME_LOCAL);
+                    loadB(pc);
+                    code.invoke(INVOKESTATIC, BUDGET, "bytes", "(Ljava/lang/Object;)J");
+                    allocate(pc);
+                }
+                loadA(pc);
+                loadB(pc);
+                code.invoke(INVOKESTATIC, ROPE, "concat", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+                store(pc);
+                break;
+            case Opcode.ISUB: binary(pc, ISUB); break;
+            case Opcode.RSUB: binary(pc, DSUB); break;
+            case Opcode.IMULT: binary(pc, IMUL); break;
+            case Opcode.RMULT: binary(pc, DMUL); break;
+            case Opcode.IDIV: binary(pc, IDIV); break;
+            case Opcode.RDIV: binary(pc, DDIV); break;
+            case Opcode.IPOW:
+                loadA(pc);
+                loadB(pc);
+                code.invoke(INVOKESTATIC, "com/jc/interpreter/Arithmetic", "ipow", "(II)I");
+                store(pc);
+                break;
+            case Opcode.RPOW:
+                loadA(pc);
+                loadB(pc);
+                code.invoke(INVOKESTATIC, "java/lang/Math", "pow", "(DD)D");
+                store(pc);
+                break;
+            case Opcode.IINC:
+            case Opcode.IINC_VAR:
+                loadA(pc);
+                code.op(ICONST_1);
+                code.op(IADD);
+                store(pc);
+                break;
+            case Opcode.RINC:
+            case Opcode.RINC_VAR:
+                loadA(pc);
+                code.op(DCONST_1);
+                code.op(DADD);
+                store(pc);
+                break;
+            case Opcode.IDEC:
+            case Opcode.IDEC_VAR:
+                loadA(pc);
+                code.op(ICONST_1);
+                code.op(ISUB);
+                store(pc);
+                break;
+            case Opcode.RDEC:
+            case Opcode.RDEC_VAR:
+                loadA(pc);
+                code.op(DCONST_1);
+                code.op(DSUB);
+                store(pc);
+                break;
+
+            case Opcode.IPRINT: print(pc, "printInt", "(I)V"); break;
+            case Opcode.RPRINT: print(pc, "printReal", "(D)V"); break;
+            case Opcode.BPRINT: print(pc, "printBool", "(Z)V"); break;
+            case Opcode.SPRINT: print(pc, "printStr", "(Ljava/lang/Object;)V"); break;
+
+            case Opcode.OR: binary(pc, IOR); break;
+            case Opcode.AND: binary(pc, IAND); break;
+            case Opcode.NOT:
+                loadA(pc);
+                code.op(ICONST_1);
+                code.op(IXOR);
+                store(pc);
+                break;
+
+            case Opcode.IEQ:
+            case Opcode.BEQ: intCondition(pc, IF_ICMPEQ); break;
+            case Opcode.INEQ:
+            case Opcode.BNEQ: intCondition(pc, IF_ICMPNE); break;
+            case Opcode.IGT:
+            case Opcode.BGT: intCondition(pc, IF_ICMPGT); break;
+            case Opcode.IGTE:
+            case Opcode.BGTE: intCondition(pc, IF_ICMPGE); break;
+            case Opcode.ILT:
+            case Opcode.BLT: intCondition(pc, IF_ICMPLT); break;
+            case Opcode.ILTE:
+            case Opcode.BLTE: intCondition(pc, IF_ICMPLE); break;
+
+            case Opcode.REQ: realCondition(pc, IFEQ); break;
+            case Opcode.RNEQ: realCondition(pc, IFNE); break;
+            case Opcode.RGT: realCondition(pc, IFGT); break;
+            case Opcode.RGTE: realCondition(pc, IFGE); break;
+            case Opcode.RLT: realCondition(pc, IFLT); break;
+            case Opcode.RLTE: realCondition(pc, IFLE); break;
+
+            case Opcode.SEQ:
+            case Opcode.SNEQ:
+                loadA(pc);
+                loadB(pc);
+                code.invoke(INVOKESTATIC, ROPE, "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+                if (op == Opcode.SNEQ) {
+                    code.op(ICONST_1);
+                    code.op(IXOR);
+                }
+                store(pc);
+                break;
+            case Opcode.SGT: strCondition(pc, IFGT); break;
+            case Opcode.SGTE: strCondition(pc, IFGE); break;
+            case Opcode.SLT: strCondition(pc, IFLT); break;
+            case Opcode.SLTE: strCondition(pc, IFLE); break;
+
+            case Opcode.JUMP:
+                code.jump(GOTO, jumpTarget(pc));
+                break;
+            case Opcode.IFTRUE_JUMP:
+                loadA(pc);
+                code.jump(IFNE, jumpTarget(pc));
+                break;
+            case Opcode.IFFALSE_JUMP:
+                loadA(pc);
+                code.jump(IFEQ, jumpTarget(pc));
+                break;
+
+            case Opcode.IEQ_JUMP: intJump(pc, IF_ICMPEQ); break;
+            case Opcode.INEQ_JUMP: intJump(pc, IF_ICMPNE); break;
+            case Opcode.IGT_JUMP: intJump(pc, IF_ICMPGT); break;
+            case Opcode.IGTE_JUMP: intJump(pc, IF_ICMPGE); break;
+            case Opcode.ILT_JUMP: intJump(pc, IF_ICMPLT); break;
+            case Opcode.ILTE_JUMP: intJump(pc, IF_ICMPLE); break;
+
+            case Opcode.REQ_JUMP: realJump(pc, IFEQ); break;
+            case Opcode.RNEQ_JUMP: realJump(pc, IFNE); break;
+            case Opcode.RGT_JUMP: realJump(pc, IFGT); break;
+            case Opcode.RGTE_JUMP: realJump(pc, IFGE); break;
+            case Opcode.RLT_JUMP: realJump(pc, IFLT); break;
+            case Opcode.RLTE_JUMP: realJump(pc, IFLE); break;
+
+            case Opcode.INEWARRAY: newArray(pc, T_INT, 4); break;
+            case Opcode.RNEWARRAY: newArray(pc, T_DOUBLE, 8); break;
+            case Opcode.BNEWARRAY: newArray(pc, T_BOOLEAN, 1); break;
+            case Opcode.ILEN: length(pc, INTS); break;
+            case Opcode.RLEN: length(pc, REALS); break;
+            case Opcode.BLEN: length(pc, BOOLS); break;
+            case Opcode.IALOAD: element(pc, INTS, IALOAD); break;
+            case Opcode.RALOAD: element(pc, REALS, DALOAD); break;
+            case Opcode.BALOAD: element(pc, BOOLS, BALOAD); break;
+            case Opcode.IASTORE: storeElement(pc, INTS, IASTORE); break;
+            case Opcode.RASTORE: storeElement(pc, REALS, DASTORE); break;
+            case Opcode.BASTORE: storeElement(pc, BOOLS, BASTORE); break;
+            case Opcode.IFILL: bulk(pc, INTS, "fill", "([II)[I"); break;
+            case Opcode.RFILL: bulk(pc, REALS, "fill", "([DD)[D"); break;
+            case Opcode.BFILL: bulk(pc, BOOLS, "fill", "([ZZ)[Z"); break;
+            case Opcode.ISUM: bulk(pc, INTS, "sum", "([I)I"); break;
+            case Opcode.RSUM: bulk(pc, REALS, "sum", "([D)D"); break;
+            case Opcode.IMIN: bulk(pc, INTS, "min", "([I)I"); break;
+            case Opcode.RMIN: bulk(pc, REALS, "min", "([D)D"); break;
+            case Opcode.IMAX: bulk(pc, INTS, "max", "([I)I"); break;
+            case Opcode.RMAX: bulk(pc, REALS, "max", "([D)D"); break;
+            case Opcode.IARRAY_ADD: newResult(pc); bulk(pc, INTS, "add", "([I[I)[I"); break;
+            case Opcode.RARRAY_ADD: newResult(pc); bulk(pc, REALS, "add", "([D[D)[D"); break;
+            case Opcode.IARRAY_SUB: newResult(pc); bulk(pc, INTS, "sub", "([I[I)[I"); break;
+            case Opcode.RARRAY_SUB: newResult(pc); bulk(pc, REALS, "sub", "([D[D)[D"); break;
+            case Opcode.IARRAY_MULT: newResult(pc); bulk(pc, INTS, "mult", "([I[I)[I"); break;
+            case Opcode.RARRAY_MULT: newResult(pc); bulk(pc, REALS, "mult", "([D[D)[D"); break;
+            case Opcode.IARRAY_DIV: newResult(pc); bulk(pc, INTS, "div", "([I[I)[I"); break;
+            case Opcode.RARRAY_DIV: newResult(pc); bulk(pc, REALS, "div", "([D[D)[D"); break;
+
+            default:
+                throw new IllegalStateException("Unsupported opcode: " + op);
+        }
+    }
+
+    private void newArray(int pc, int elementType, int elementSize) {
+        if (fuelLocal >= 0) {
+            code.local(ALOAD, LoopCompiler.FRAME_LOCAL);
+            loadA(pc);
+            code.iconst(elementSize);
+            code.invoke(INVOKESTATIC, BUDGET, "arrayBytes", "(II)J");
+            allocate(pc);
+        }
+        loadA(pc);
+        code.op(NEWARRAY, elementType);
+        store(pc);
+    }
+
+    // array arithmetic makes an array as long as its operands
+    private void newResult(int pc) {
+        if (fuelLocal < 0) return;
+        code.local(ALOAD, LoopCompiler.FRAME_LOCAL);
+        loadA(pc);
+        code.invoke(INVOKESTATIC, BUDGET, "bytes", "(Ljava/lang/Object;)J");
+        allocate(pc);
+    }
+
+    // takes the frame and the bytes the instruction at pc is about to allocate, and leaves the region before it
+    // once the frame's allowance is used up, so the runner checks the memory limit and then runs it
+    private void allocate(int pc) {
+        code.invoke(INVOKEVIRTUAL, LoopCompiler.FRAME, "allocate", "(J)Z");
+        code.jump(IFEQ, exit(pc));
+    }
+
+    private void length(int pc, String arrayType) {
+        loadA(pc);
+        code.type(CHECKCAST, arrayType);
+        code.op(ARRAYLENGTH);
+        store(pc);
+    }
+
+    private void element(int pc, String arrayType, int arrayLoad) {
+        loadA(pc);
+        code.type(CHECKCAST, arrayType);
+        loadB(pc);
+        code.op(arrayLoad);
+        store(pc);
+    }
+
+    private void storeElement(int pc, String arrayType, int arrayStore) {
+        code.local(ALOAD, locals[Slots.ARRAY][program.dests[pc]]);
+        code.type(CHECKCAST, arrayType);
+        loadB(pc);
+        loadA(pc);
+        code.op(arrayStore);
+    }
+
+    // the bulk builtins call into ArrayOps; array operands are cast from the Object locals that hold them
+    private void bulk(int pc, String arrayType, String method, String descriptor) {
+        loadA(pc);
+        code.type(CHECKCAST, arrayType);
+        if (program.bKinds[pc] != Program.NONE) {
+            loadB(pc);
+            if (Opcode.rightOperandType(program.ops[pc]) == Slots.ARRAY) code.type(CHECKCAST, arrayType);
+        }
+        code.invoke(INVOKESTATIC, "com/jc/interpreter/ArrayOps", method, descriptor);
+        store(pc);
+    }
+
+    private void binary(int pc, int opcode) {
+        loadA(pc);
+        loadB(pc);
+        code.op(opcode);
+        store(pc);
+    }
+
+    private void print(int pc, String method, String descriptor) {
+        code.local(ALOAD, outputLocal);
+        loadA(pc);
+        code.invoke(INVOKEVIRTUAL, LoopCompiler.OUTPUT, method, descriptor);
+    }
+
+    private void intCondition(int pc, int branch) {
+        loadA(pc);
+        loadB(pc);
+        condition(pc, branch);
+    }
+
+    private void realCondition(int pc, int branch) {
+        loadA(pc);
+        loadB(pc);
+        code.invoke(INVOKESTATIC, "java/lang/Double", "compare", "(DD)I");
+        condition(pc, branch);
+    }
+
+    private void strCondition(int pc, int branch) {
+        loadA(pc);
+        loadB(pc);
+        code.invoke(INVOKESTATIC, ROPE, "compare", "(Ljava/lang/Object;Ljava/lang/Object;)I");
+        condition(pc, branch);
+    }
+
+    private void intJump(int pc, int branch) {
+        loadA(pc);
+        loadB(pc);
+        code.jump(branch, jumpTarget(pc));
+    }
+
+    private void realJump(int pc, int branch) {
+        loadA(pc);
+        loadB(pc);
+        code.invoke(INVOKESTATIC, "java/lang/Double", "compare", "(DD)I");
+        code.jump(branch, jumpTarget(pc));
+    }
+
+    private void condition(int pc, int branch) {
+        Label isTrue = new Label();
+        Label done = new Label();
+        code.jump(branch, isTrue);
+        code.op(ICONST_0);
+        store(pc);
+        code.jump(GOTO, done);
+        code.mark(isTrue);
+        code.op(ICONST_1);
+        store(pc);
+        code.mark(done);
+    }
+
+    void loadA(int pc) {
+        load(Opcode.operandType(program.ops[pc]), program.aKinds[pc], program.a[pc]);
+    }
+
+    void loadB(int pc) {
+        load(Opcode.rightOperandType(program.ops[pc]), program.bKinds[pc], program.b[pc]);
+    }
+
+    private void load(int type, int kind, int index) {
+        if (Program.isConst(kind)) {
+            if (type == Slots.INT) code.iconst(program.intPool[index]);
+            else if (type == Slots.REAL) code.dconst(program.realPool[index]);
+            else if (type == Slots.BOOL) code.iconst(program.boolPool[index] ? 1 : 0);
+            else code.sconst(program.strPool[index].toString());
+            return;
+        }
+        code.local(loadOpcode(type), locals[type][index]);
+    }
+
+    void store(int pc) {
+        int type = Opcode.resultType(program.ops[pc]);
+        code.local(storeOpcode(type), locals[type][program.dests[pc]]);
+    }
+
+    static int loadOpcode(int type) {
+        if (type == Slots.REAL) return DLOAD;
+        if (type == Slots.STR || type == Slots.ARRAY) return ALOAD;
+        return ILOAD;
+    }
+
+    static int storeOpcode(int type) {
+        if (type == Slots.REAL) return DSTORE;
+        if (type == Slots.STR || type == Slots.ARRAY) return ASTORE;
+        return ISTORE;
+    }
+}
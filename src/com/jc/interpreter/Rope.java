@@ -0,0 +1,143 @@
+package com.jc.interpreter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a str built with `+`: the strings concatenated so far, in order, without copying their characters.
+// Ropes built on each other share one piece array. Concatenating onto the newest of them appends to that
+// array in place, so `s = s + x` in a loop is linear; concatenating onto an older one copies its pieces
+// first. Printing walks the pieces; only comparisons flatten a rope into one String.
+public final class Rope implements CharSequence {
+    private static final int MIN_CAPACITY = 8;
+
+    private final String[] pieces;
+    private final int[] ends;
+    private final int count;
+    // how many pieces of the shared array are taken; claimed with a CAS, so threads of a parallel loop
+    // concatenating onto the same rope never write the same slot
+    private final AtomicInteger used;
+    private String flat;
+
+    private Rope(String[] pieces, int[] ends, int count, AtomicInteger used) {
+        this.pieces = pieces;
+        this.ends = ends;
+        this.count = count;
+        this.used = used;
+    }
+
+    // str values are Strings (literals) or Ropes; null is an uninitialized variable and reads as "null"
+    public static Object concat(Object left, Object right) {
+        CharSequence tail = chars(right);
+        if (tail.length() == 0) return chars(left);
+        if (left instanceof Rope) return ((Rope) left).append(tail);
+
+        String head = (String) chars(left);
+        if (head.isEmpty()) return tail;
+        int pieceCount = 1 + pieceCount(tail);
+        String[] pieces = new String[Math.max(MIN_CAPACITY, pieceCount * 2)];
+        int[] ends = new int[pieces.length];
+        pieces[0] = head;
+        ends[0] = head.length();
+        copy(tail, pieces, ends, 1);
+        return new Rope(pieces, ends, pieceCount, new AtomicInteger(pieceCount));
+    }
+
+    public static boolean equals(Object left, Object right) {
+        CharSequence a = chars(left);
+        CharSequence b = chars(right);
+        return a.length() == b.length() && a.toString().equals(b.toString());
+    }
+
+    public static int compare(Object left, Object right) {
+        return chars(left).toString().compareTo(chars(right).toString());
+    }
+
+    public int pieceCount() {
+        return count;
+    }
+
+    public String piece(int index) {
+        return pieces[index];
+    }
+
+    // the piece array this rope shares with the ropes built on it
+    Object storage() {
+        return pieces;
+    }
+
+    @Override
+    public int length() {
+        return ends[count - 1];
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) throw new IndexOutOfBoundsException(index);
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= index) low = middle + 1;
+            else high = middle;
+        }
+        return pieces[low].charAt(index - (low == 0 ? 0 : ends[low - 1]));
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        String result = flat;
+        if (result == null) {
+            StringBuilder builder = new StringBuilder(length());
+            for (int i = 0; i < count; i++) {
+                builder.append(pieces[i]);
+            }
+            result = builder.toString();
+            flat = result;
+        }
+        return result;
+    }
+
+    private Rope append(CharSequence tail) {
+        int added = pieceCount(tail);
+        int newCount = count + added;
+        if (newCount <= pieces.length && used.compareAndSet(count, newCount)) {
+            copy(tail, pieces, ends, count);
+            return new Rope(pieces, ends, newCount, used);
+        }
+
+        String[] newPieces = new String[Math.max(MIN_CAPACITY, newCount * 2)];
+        int[] newEnds = new int[newPieces.length];
+        System.arraycopy(pieces, 0, newPieces, 0, count);
+        System.arraycopy(ends, 0, newEnds, 0, count);
+        copy(tail, newPieces, newEnds, count);
+        return new Rope(newPieces, newEnds, newCount, new AtomicInteger(newCount));
+    }
+
+    private static CharSequence chars(Object value) {
+        return value == null ? "null" : (CharSequence) value;
+    }
+
+    private static int pieceCount(CharSequence value) {
+        return value instanceof Rope ? ((Rope) value).count : 1;
+    }
+
+    // writes the pieces of value at index start, with ends continuing from the piece before it
+    private static void copy(CharSequence value, String[] pieces, int[] ends, int start) {
+        int offset = start == 0 ? 0 : ends[start - 1];
+        if (value instanceof Rope) {
+            Rope rope = (Rope) value;
+            for (int i = 0; i < rope.count; i++) {
+                pieces[start + i] = rope.pieces[i];
+                ends[start + i] = offset + rope.ends[i];
+            }
+        }
+        else {
+            pieces[start] = (String) value;
+            ends[start] = offset + value.length();
+        }
+    }
+}
@@ -2,322 +2,1016 @@ package com.jc.interpreter;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
-import com.jc.Constants;
-import com.jc.node.Expression;
-import com.jc.node.Literal;
-import com.jc.node.Operation;
-import com.jc.node.Variable;
+import com.jc.telemetry.ExecutionEvent;
+import com.jc.telemetry.Telemetry;
 
 
 public class Runner {
-    
-    private List<Command> code;
-    private HashMap<String, Integer> labels;
-    private HashMap<String, Var> temps;
-    private HashMap<String, Var> vars;
-    private int currentCommand;
 
-    private class Var {
-        public Class<?> type;
-        public Object value;
-    }
+    private final Program program;
+    private final int[] ops;
+    private final int[] aKinds;
+    private final int[] a;
+    private final int[] bKinds;
+    private final int[] b;
+    private final int[] dests;
+    private final int[] intPool;
+    private final double[] realPool;
+    private final boolean[] boolPool;
+    private final Object[] strPool;
+
+    private static final int DEFAULT_COMPILE_THRESHOLD = 1000;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_SIZE = 1024;
+
+    private Frame frame;
+    private int[] ints;
+    private double[] reals;
+    private boolean[] bools;
+    private Object[] strs;
+    private Object[] arrays;
+    private Output output;
+    private Profiler profiler;
+
+    private CompiledLoops compiled;
+    private CompiledLoop[] loops;
+    private int[] backEdges;
+    private int compileThreshold;
+
+    private Limits limits;
+    private Budget budget;
+    private int granted;
+    private long sliceEnd;
+    private boolean suspended;
+    private int resumeAt;
+    private long executed;
+    private ExecutionEvent event;
+
+    private ForkJoinPool pool;
+    private ParallelLoop[] parallelLoops;
+    private Runner[] workers;
+    private boolean worker;
+    private int chunkEnd;
+
+    private final Function[] functions;
+    private final CallStack stack;
+    private int maxCallDepth = CallStack.DEFAULT_MAX_DEPTH;
+    private long calls;
 
     public Runner(List<Command> code, HashMap<String, String> symbolTable, HashMap<String, String> tempTable) {
-        this.code = code;
-        this.labels = new HashMap<>();
-        this.vars = new HashMap<>();
-        this.temps = new HashMap<>();
-        
-        for (String varName : symbolTable.keySet()) {
-            Var var = new Var();
-            String type = symbolTable.get(varName);
-            
-            if (type.equals(Constants.T_REAL)) var.type = Double.class;
-            else if (type.equals(Constants.T_INT)) var.type = Integer.class;
-            else if (type.equals(Constants.T_BOOL)) var.type = Boolean.class;
-
-            vars.put(varName, var);
-        }
+        this(new Lowering(new Slots(symbolTable, tempTable)).lower(code));
+    }
 
-        for (String tempName : tempTable.keySet()) {
-            Var var = new Var();
-            String type = tempTable.get(tempName);
-            
-            if (type.equals(Constants.T_REAL)) var.type = Double.class;
-            else if (type.equals(Constants.T_INT)) var.type = Integer.class;
-            else if (type.equals(Constants.T_BOOL)) var.type = Boolean.class;
+    public Runner(Program program) {
+        this(program, new CompiledLoops(program));
+    }
 
-            temps.put(tempName, var);
-        }
+    // runners built on the same CompiledLoops share their compiled code; null interprets only
+    public Runner(Program program, CompiledLoops compiled) {
+        this.program = program;
+        this.ops = program.ops;
+        this.aKinds = program.aKinds;
+        this.a = program.a;
+        this.bKinds = program.bKinds;
+        this.b = program.b;
+        this.dests = program.dests;
+        this.intPool = program.intPool;
+        this.realPool = program.realPool;
+        this.boolPool = program.boolPool;
+        this.strPool = program.strPool;
+        this.functions = program.functions;
+        this.stack = functions.length > 0 ? new CallStack() : null;
+
+        this.frame = program.newFrame();
+        this.ints = frame.ints;
+        this.reals = frame.reals;
+        this.bools = frame.bools;
+        this.strs = frame.strs;
+        this.arrays = frame.arrays;
+
+        this.compileThreshold = DEFAULT_COMPILE_THRESHOLD;
+        this.pool = ForkJoinPool.commonPool();
+        setCompiledLoops(compiled);
+    }
 
-        for (int i = 0; i < code.size(); i++) {
-            Command command = code.get(i);
-            if (command.label != null) {
-                labels.put(command.label, i);
-            }
+    public void setTieredCompilation(boolean enabled) {
+        if (enabled != (compiled != null)) {
+            setCompiledLoops(enabled ? new CompiledLoops(program) : null);
         }
     }
 
-    public void run() {
-        currentCommand = 0;
-
-        while (currentCommand < code.size()) {
-            Command command = code.get(currentCommand);
-            //System.out.println(currentCommand);
-
-            if (command.op == Op.OP_STORE) store(command);
-            else if (command.op == Op.OP_ADD) add(command);
-            else if (command.op == Op.OP_SUB) sub(command);
-            else if (command.op == Op.OP_MULT) mult(command);
-            else if (command.op == Op.OP_DIV) div(command);
-            else if (command.op == Op.OP_POW) pow(command);
-            else if (command.op == Op.OP_INC) inc(command);
-            else if (command.op == Op.OP_DEC) dec(command);
-            else if (command.op == Op.OP_OR) or(command);
-            else if (command.op == Op.OP_AND) and(command);
-            else if (command.op == Op.OP_NOT) not(command);
-            else if (command.op == Op.OP_EQ) eq(command);
-            else if (command.op == Op.OP_NEQ) neq(command);
-            else if (command.op == Op.OP_GT) gt(command);
-            else if (command.op == Op.OP_GTE) gte(command);
-            else if (command.op == Op.OP_LT) lt(command);
-            else if (command.op == Op.OP_LTE) lte(command);
-            else if (command.op == Op.OP_JUMP) jump(command);
-            else if (command.op == Op.OP_IFTRUE_JUMP) ifTrueJump(command);
-            else if (command.op == Op.OP_IFFALSE_JUMP) ifFalseJump(command);
-            else if (command.op == Op.OP_MOV) move(command);
-            else if (command.op == Op.OP_PRINT) print(command);
-
-            currentCommand++;
-        }
+    public void setCompiledLoops(CompiledLoops compiled) {
+        this.compiled = compiled;
+        this.loops = compiled != null ? compiled.loops : null;
+        this.backEdges = compiled != null ? compiled.backEdges : null;
     }
 
-    private void move(Command command) {
-        Object value = getValueFromExpression(command.left);
-        Var variable = temps.get(command.result);
-        variable.value = value;
+    public void setCompileThreshold(int compileThreshold) {
+        this.compileThreshold = compileThreshold;
     }
 
-    private void jump(Command command) {
-        String label = command.result;
-        Integer labelIndex = labels.get(label);
-        currentCommand = labelIndex.intValue();
+    public void setOutput(Output output) {
+        this.output = output;
+        frame.output = output;
     }
 
-    private void ifTrueJump(Command command) {
-        Boolean value = (Boolean) getValueFromExpression(command.left);
-        if (value) {
-            String label = command.result;
-            Integer labelIndex = labels.get(command.result);
-            currentCommand = labelIndex.intValue();
-        }
+    // where parallel for loops run their chunks; null runs them on the calling thread
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
     }
 
-    private void ifFalseJump(Command command) {
-        Boolean value = (Boolean) getValueFromExpression(command.left);
-        if (!value) {
-            Integer labelIndex = labels.get(command.result);
-            currentCommand = labelIndex.intValue();
-        }
+    // caps every later run; null runs without limits
+    public void setLimits(Limits limits) {
+        this.limits = limits != null && !limits.isUnlimited() ? limits : null;
+        this.maxCallDepth = limits != null && limits.getMaxCallDepth() > 0
+            ? limits.getMaxCallDepth()
+            : CallStack.DEFAULT_MAX_DEPTH;
     }
 
-    private void print(Command command) {
-        System.out.println(getValueFromExpression(command.left));
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
     }
 
-    private void store(Command command) {
-        Var variable = vars.get(command.result);
-        variable.value = getValueFromExpression(command.left);
+    public Program getProgram() {
+        return program;
     }
 
-    private void add(Command command) {
-        Var result = temps.get(command.result);
+    public Frame getFrame() {
+        return frame;
+    }
 
-        if (result.type == Double.class) {
-            Double left = getDoubleValueFromExpression(command.left);
-            Double right = getDoubleValueFromExpression(command.right);
-            result.value = left + right;
-        }
-        else if (result.type == Integer.class) {
-            Integer left = getIntegerValueFromExpression(command.left);
-            Integer right = getIntegerValueFromExpression(command.right);
-            result.value = left + right;
-        }
+    // clears every variable so the runner can execute the program again; a suspended run is abandoned
+    public void reset() {
+        frame.clear();
+        suspended = false;
     }
 
-    private void sub(Command command) {
-        Var result = temps.get(command.result);
+    public void run() {
+        runSlice(0);
+    }
 
-        if (result.type == Double.class) {
-            Double left = getDoubleValueFromExpression(command.left);
-            Double right = getDoubleValueFromExpression(command.right);
-            result.value = left - right;
+    // runs the program, or the rest of it after the previous slice, until it ends or, when sliceNanos is not 0,
+    // until the first back-edge after sliceNanos have passed; returns true when the program ended, and the next
+    // call starts it again from the top
+    public boolean runSlice(long sliceNanos) {
+        if (output == null) setOutput(Output.standard(FlushPolicy.AUTO));
+        if (!suspended) {
+            budget = limits != null ? new Budget(limits) : null;
+            frame.allowance = budget != null ? budget.allowance(frame, 0) : Long.MAX_VALUE;
+            resumeAt = 0;
+            executed = 0;
+            calls = 0;
+            if (stack != null) stack.clear();
+            event = Telemetry.beginExecution();
         }
-        else if (result.type == Integer.class) {
-            Integer left = getIntegerValueFromExpression(command.left);
-            Integer right = getIntegerValueFromExpression(command.right);
-            result.value = left - right;
+        sliceEnd = sliceNanos > 0 ? System.nanoTime() + sliceNanos : 0;
+        suspended = false;
+        refuel();
+
+        boolean failed = true;
+        try {
+            if (profiler == null) interpret(resumeAt);
+            else profile(resumeAt);
+            failed = false;
+        } finally {
+            if (!suspended) finish(failed);
         }
+        return !suspended;
     }
 
-    private void mult(Command command) {
-        Var result = temps.get(command.result);
-
-        if (result.type == Double.class) {
-            Double left = getDoubleValueFromExpression(command.left);
-            Double right = getDoubleValueFromExpression(command.right);
-            result.value = left * right;
-        }
-        else if (result.type == Integer.class) {
-            Integer left = getIntegerValueFromExpression(command.left);
-            Integer right = getIntegerValueFromExpression(command.right);
-            result.value = left * right;
-        }
+    // instructions the last run executed so far, counted at back-edges: each loop iteration counts the length
+    // of the loop's body, and code outside loops is not counted
+    public long getInstructionCount() {
+        return executed;
     }
 
-    private void div(Command command) {
-        Var result = temps.get(command.result);
+    // calls of functions the last run made so far, leaving out the ones that were inlined
+    public long getCallCount() {
+        return calls;
+    }
 
-        if (result.type == Double.class) {
-            Double left = getDoubleValueFromExpression(command.left);
-            Double right = getDoubleValueFromExpression(command.right);
-            result.value = left / right;
-        }
-        else if (result.type == Integer.class) {
-            Integer left = getIntegerValueFromExpression(command.left);
-            Integer right = getIntegerValueFromExpression(command.right);
-            result.value = left / right;
+    // the run ended or failed: counts the instructions since the last check and writes out what it printed
+    private void finish(boolean failed) {
+        long spent = (long) granted - frame.fuel;
+        executed += spent;
+        if (budget != null) budget.add(spent);
+        try {
+            output.flush();
+        } finally {
+            Telemetry.endExecution(event, ops.length, program.slotCount(), executed, calls, failed);
+            event = null;
         }
     }
 
-    private void pow(Command command) {
-        Var result = temps.get(command.result);
-
-        Double left = getDoubleValueFromExpression(command.left);
-        Double right = getDoubleValueFromExpression(command.right);
+    // runs until the end of the program or, on a worker, until its chunk of a parallel for is done
+    private int interpret(int pc) {
+        int size = ops.length;
+
+        while (pc < size) {
+            switch (ops[pc]) {
+                case Opcode.ISTORE:
+                case Opcode.IMOV: ints[dests[pc]] = intA(pc); break;
+                case Opcode.RSTORE:
+                case Opcode.RMOV: reals[dests[pc]] = realA(pc); break;
+                case Opcode.BSTORE:
+                case Opcode.BMOV: bools[dests[pc]] = boolA(pc); break;
+                case Opcode.SSTORE:
+                case Opcode.SMOV: strs[dests[pc]] = strA(pc); break;
+                case Opcode.I2R: reals[dests[pc]] = intA(pc); break;
+
+                case Opcode.IADD: ints[dests[pc]] = intA(pc) + intB(pc); break;
+                case Opcode.RADD: reals[dests[pc]] = realA(pc) + realB(pc); break;
+                case Opcode.SCONCAT:
+                    allocate(Budget.bytes(strB(pc)));
+                    strs[dests[pc]] = Rope.concat(strA(pc), strB(pc));
+                    break;
+                case Opcode.ISUB: ints[dests[pc]] = intA(pc) - intB(pc); break;
+                case Opcode.RSUB: reals[dests[pc]] = realA(pc) - realB(pc); break;
+                case Opcode.IMULT: ints[dests[pc]] = intA(pc) * intB(pc); break;
+                case Opcode.RMULT: reals[dests[pc]] = realA(pc) * realB(pc); break;
+                case Opcode.IDIV: ints[dests[pc]] = intA(pc) / intB(pc); break;
+                case Opcode.RDIV: reals[dests[pc]] = realA(pc) / realB(pc); break;
+                case Opcode.IPOW: ints[dests[pc]] = Arithmetic.ipow(intA(pc), intB(pc)); break;
+                case Opcode.RPOW: reals[dests[pc]] = Math.pow(realA(pc), realB(pc)); break;
+                case Opcode.IINC:
+                case Opcode.IINC_VAR: ints[dests[pc]] = intA(pc) + 1; break;
+                case Opcode.RINC:
+                case Opcode.RINC_VAR: reals[dests[pc]] = realA(pc) + 1; break;
+                case Opcode.IDEC:
+                case Opcode.IDEC_VAR: ints[dests[pc]] = intA(pc) - 1; break;
+                case Opcode.RDEC:
+                case Opcode.RDEC_VAR: reals[dests[pc]] = realA(pc) - 1; break;
+
+                case Opcode.IPRINT: output.printInt(intA(pc)); break;
+                case Opcode.RPRINT: output.printReal(realA(pc)); break;
+                case Opcode.BPRINT: output.printBool(boolA(pc)); break;
+                case Opcode.SPRINT: output.printStr(strA(pc)); break;
+
+                case Opcode.OR: bools[dests[pc]] = boolA(pc) || boolB(pc); break;
+                case Opcode.AND: bools[dests[pc]] = boolA(pc) && boolB(pc); break;
+                case Opcode.NOT: bools[dests[pc]] = !boolA(pc); break;
+
+                case Opcode.IEQ: bools[dests[pc]] = intA(pc) == intB(pc); break;
+                case Opcode.REQ: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) == 0; break;
+                case Opcode.BEQ: bools[dests[pc]] = boolA(pc) == boolB(pc); break;
+                case Opcode.SEQ: bools[dests[pc]] = Rope.equals(strA(pc), strB(pc)); break;
+                case Opcode.INEQ: bools[dests[pc]] = intA(pc) != intB(pc); break;
+                case Opcode.RNEQ: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) != 0; break;
+                case Opcode.BNEQ: bools[dests[pc]] = boolA(pc) != boolB(pc); break;
+                case Opcode.SNEQ: bools[dests[pc]] = !Rope.equals(strA(pc), strB(pc)); break;
+                case Opcode.IGT: bools[dests[pc]] = intA(pc) > intB(pc); break;
+                case Opcode.RGT: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) > 0; break;
+                case Opcode.BGT: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) > 0; break;
+                case Opcode.SGT: bools[dests[pc]] = compareStr(pc) > 0; break;
+                case Opcode.IGTE: bools[dests[pc]] = intA(pc) >= intB(pc); break;
+                case Opcode.RGTE: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) >= 0; break;
+                case Opcode.BGTE: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) >= 0; break;
+                case Opcode.SGTE: bools[dests[pc]] = compareStr(pc) >= 0; break;
+                case Opcode.ILT: bools[dests[pc]] = intA(pc) < intB(pc); break;
+                case Opcode.RLT: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) < 0; break;
+                case Opcode.BLT: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) < 0; break;
+                case Opcode.SLT: bools[dests[pc]] = compareStr(pc) < 0; break;
+                case Opcode.ILTE: bools[dests[pc]] = intA(pc) <= intB(pc); break;
+                case Opcode.RLTE: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) <= 0; break;
+                case Opcode.BLTE: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) <= 0; break;
+                case Opcode.SLTE: bools[dests[pc]] = compareStr(pc) <= 0; break;
+
+                case Opcode.ASTORE:
+                case Opcode.AMOV: arrays[dests[pc]] = arrays[a[pc]]; break;
+                case Opcode.INEWARRAY:
+                    allocate(Budget.arrayBytes(intA(pc), 4));
+                    arrays[dests[pc]] = new int[intA(pc)];
+                    break;
+                case Opcode.RNEWARRAY:
+                    allocate(Budget.arrayBytes(intA(pc), 8));
+                    arrays[dests[pc]] = new double[intA(pc)];
+                    break;
+                case Opcode.BNEWARRAY:
+                    allocate(Budget.arrayBytes(intA(pc), 1));
+                    arrays[dests[pc]] = new boolean[intA(pc)];
+                    break;
+                case Opcode.ILEN: ints[dests[pc]] = ((int[]) arrays[a[pc]]).length; break;
+                case Opcode.RLEN: ints[dests[pc]] = ((double[]) arrays[a[pc]]).length; break;
+                case Opcode.BLEN: ints[dests[pc]] = ((boolean[]) arrays[a[pc]]).length; break;
+                case Opcode.IALOAD: ints[dests[pc]] = ((int[]) arrays[a[pc]])[intB(pc)]; break;
+                case Opcode.RALOAD: reals[dests[pc]] = ((double[]) arrays[a[pc]])[intB(pc)]; break;
+                case Opcode.BALOAD: bools[dests[pc]] = ((boolean[]) arrays[a[pc]])[intB(pc)]; break;
+                case Opcode.IASTORE: ((int[]) arrays[dests[pc]])[intB(pc)] = intA(pc); break;
+                case Opcode.RASTORE: ((double[]) arrays[dests[pc]])[intB(pc)] = realA(pc); break;
+                case Opcode.BASTORE: ((boolean[]) arrays[dests[pc]])[intB(pc)] = boolA(pc); break;
+                case Opcode.IFILL: arrays[dests[pc]] = ArrayOps.fill((int[]) arrays[a[pc]], intB(pc)); break;
+                case Opcode.RFILL: arrays[dests[pc]] = ArrayOps.fill((double[]) arrays[a[pc]], realB(pc)); break;
+                case Opcode.BFILL: arrays[dests[pc]] = ArrayOps.fill((boolean[]) arrays[a[pc]], boolB(pc)); break;
+                case Opcode.ISUM: ints[dests[pc]] = ArrayOps.sum((int[]) arrays[a[pc]]); break;
+                case Opcode.RSUM: reals[dests[pc]] = ArrayOps.sum((double[]) arrays[a[pc]]); break;
+                case Opcode.IMIN: ints[dests[pc]] = ArrayOps.min((int[]) arrays[a[pc]]); break;
+                case Opcode.RMIN: reals[dests[pc]] = ArrayOps.min((double[]) arrays[a[pc]]); break;
+                case Opcode.IMAX: ints[dests[pc]] = ArrayOps.max((int[]) arrays[a[pc]]); break;
+                case Opcode.RMAX: reals[dests[pc]] = ArrayOps.max((double[]) arrays[a[pc]]); break;
+                case Opcode.IARRAY_ADD:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.add((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_ADD:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.add((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+                case Opcode.IARRAY_SUB:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.sub((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_SUB:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.sub((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+                case Opcode.IARRAY_MULT:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.mult((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_MULT:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.mult((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+                case Opcode.IARRAY_DIV:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.div((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_DIV:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.div((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+
+                case Opcode.JUMP:
+                    pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                    continue;
+                case Opcode.IFTRUE_JUMP:
+                    if (boolA(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.IFFALSE_JUMP:
+                    if (!boolA(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+
+                case Opcode.IEQ_JUMP:
+                    if (intA(pc) == intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.INEQ_JUMP:
+                    if (intA(pc) != intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.IGT_JUMP:
+                    if (intA(pc) > intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.IGTE_JUMP:
+                    if (intA(pc) >= intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.ILT_JUMP:
+                    if (intA(pc) < intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.ILTE_JUMP:
+                    if (intA(pc) <= intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.REQ_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) == 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RNEQ_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) != 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RGT_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) > 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RGTE_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) >= 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RLT_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) < 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RLTE_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) <= 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+
+                case Opcode.PAR_FOR:
+                    pc = parallelFor(pc);
+                    continue;
+                case Opcode.PAR_NEXT:
+                    if (++ints[a[pc]] < (worker ? chunkEnd : intB(pc))) {
+                        pc = spend(pc, dests[pc]);
+                        continue;
+                    }
+                    if (worker) return pc + 1;
+                    break;
+                // reductions only act when their loop is forked; parallelFor combines them
+                case Opcode.IREDUCE_ADD:
+                case Opcode.IREDUCE_MULT:
+                case Opcode.IREDUCE_MIN:
+                case Opcode.IREDUCE_MAX:
+                case Opcode.RREDUCE_ADD:
+                case Opcode.RREDUCE_MULT:
+                case Opcode.RREDUCE_MIN:
+                case Opcode.RREDUCE_MAX: break;
+
+                case Opcode.IARG: stack.pushInt(intA(pc)); break;
+                case Opcode.RARG: stack.pushReal(realA(pc)); break;
+                case Opcode.BARG: stack.pushBool(boolA(pc)); break;
+                case Opcode.SARG: stack.pushStr(strA(pc)); break;
+                case Opcode.AARG: stack.pushArray(arrays[a[pc]]); break;
+                case Opcode.ICALL:
+                case Opcode.RCALL:
+                case Opcode.BCALL:
+                case Opcode.SCALL:
+                case Opcode.ACALL:
+                    pc = call(pc);
+                    continue;
+                case Opcode.IRET: {
+                    int value = intA(pc);
+                    int call = stack.leave(frame);
+                    ints[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.RRET: {
+                    double value = realA(pc);
+                    int call = stack.leave(frame);
+                    reals[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.BRET: {
+                    boolean value = boolA(pc);
+                    int call = stack.leave(frame);
+                    bools[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.SRET: {
+                    Object value = strA(pc);
+                    int call = stack.leave(frame);
+                    strs[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.ARET: {
+                    Object value = arrays[a[pc]];
+                    int call = stack.leave(frame);
+                    arrays[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+            }
 
-        if (result.type == Double.class) {
-            result.value = Double.valueOf(Math.pow(left, right));
-        }
-        else if (result.type == Integer.class) {
-            result.value = Integer.valueOf((int) Math.floor(Math.pow(left, right)));
+            pc++;
         }
+        return pc;
     }
 
-    private void inc(Command command) {
-        Var result = temps.get(command.result);
+    // interpret's dispatch with the profiler's hook in front of every instruction, kept apart so runs without
+    // --profile pay nothing for it; an opcode added to one switch must be added to the other
+    private int interpretProfiled(int pc) {
+        int size = ops.length;
+        long[] counts = profiler.counts;
+
+        while (pc < size) {
+            counts[pc]++;
+            profiler.pc = pc;
+            switch (ops[pc]) {
+                case Opcode.ISTORE:
+                case Opcode.IMOV: ints[dests[pc]] = intA(pc); break;
+                case Opcode.RSTORE:
+                case Opcode.RMOV: reals[dests[pc]] = realA(pc); break;
+                case Opcode.BSTORE:
+                case Opcode.BMOV: bools[dests[pc]] = boolA(pc); break;
+                case Opcode.SSTORE:
+                case Opcode.SMOV: strs[dests[pc]] = strA(pc); break;
+                case Opcode.I2R: reals[dests[pc]] = intA(pc); break;
+
+                case Opcode.IADD: ints[dests[pc]] = intA(pc) + intB(pc); break;
+                case Opcode.RADD: reals[dests[pc]] = realA(pc) + realB(pc); break;
+                case Opcode.SCONCAT:
+                    allocate(Budget.bytes(strB(pc)));
+                    strs[dests[pc]] = Rope.concat(strA(pc), strB(pc));
+                    break;
+                case Opcode.ISUB: ints[dests[pc]] = intA(pc) - intB(pc); break;
+                case Opcode.RSUB: reals[dests[pc]] = realA(pc) - realB(pc); break;
+                case Opcode.IMULT: ints[dests[pc]] = intA(pc) * intB(pc); break;
+                case Opcode.RMULT: reals[dests[pc]] = realA(pc) * realB(pc); break;
+                case Opcode.IDIV: ints[dests[pc]] = intA(pc) / intB(pc); break;
+                case Opcode.RDIV: reals[dests[pc]] = realA(pc) / realB(pc); break;
+                case Opcode.IPOW: ints[dests[pc]] = Arithmetic.ipow(intA(pc), intB(pc)); break;
+                case Opcode.RPOW: reals[dests[pc]] = Math.pow(realA(pc), realB(pc)); break;
+                case Opcode.IINC:
+                case Opcode.IINC_VAR: ints[dests[pc]] = intA(pc) + 1; break;
+                case Opcode.RINC:
+                case Opcode.RINC_VAR: reals[dests[pc]] = realA(pc) + 1; break;
+                case Opcode.IDEC:
+                case Opcode.IDEC_VAR: ints[dests[pc]] = intA(pc) - 1; break;
+                case Opcode.RDEC:
+                case Opcode.RDEC_VAR: reals[dests[pc]] = realA(pc) - 1; break;
+
+                case Opcode.IPRINT: output.printInt(intA(pc)); break;
+                case Opcode.RPRINT: output.printReal(realA(pc)); break;
+                case Opcode.BPRINT: output.printBool(boolA(pc)); break;
+                case Opcode.SPRINT: output.printStr(strA(pc)); break;
+
+                case Opcode.OR: bools[dests[pc]] = boolA(pc) || boolB(pc); break;
+                case Opcode.AND: bools[dests[pc]] = boolA(pc) && boolB(pc); break;
+                case Opcode.NOT: bools[dests[pc]] = !boolA(pc); break;
+
+                case Opcode.IEQ: bools[dests[pc]] = intA(pc) == intB(pc); break;
+                case Opcode.REQ: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) == 0; break;
+                case Opcode.BEQ: bools[dests[pc]] = boolA(pc) == boolB(pc); break;
+                case Opcode.SEQ: bools[dests[pc]] = Rope.equals(strA(pc), strB(pc)); break;
+                case Opcode.INEQ: bools[dests[pc]] = intA(pc) != intB(pc); break;
+                case Opcode.RNEQ: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) != 0; break;
+                case Opcode.BNEQ: bools[dests[pc]] = boolA(pc) != boolB(pc); break;
+                case Opcode.SNEQ: bools[dests[pc]] = !Rope.equals(strA(pc), strB(pc)); break;
+                case Opcode.IGT: bools[dests[pc]] = intA(pc) > intB(pc); break;
+                case Opcode.RGT: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) > 0; break;
+                case Opcode.BGT: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) > 0; break;
+                case Opcode.SGT: bools[dests[pc]] = compareStr(pc) > 0; break;
+                case Opcode.IGTE: bools[dests[pc]] = intA(pc) >= intB(pc); break;
+                case Opcode.RGTE: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) >= 0; break;
+                case Opcode.BGTE: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) >= 0; break;
+                case Opcode.SGTE: bools[dests[pc]] = compareStr(pc) >= 0; break;
+                case Opcode.ILT: bools[dests[pc]] = intA(pc) < intB(pc); break;
+                case Opcode.RLT: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) < 0; break;
+                case Opcode.BLT: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) < 0; break;
+                case Opcode.SLT: bools[dests[pc]] = compareStr(pc) < 0; break;
+                case Opcode.ILTE: bools[dests[pc]] = intA(pc) <= intB(pc); break;
+                case Opcode.RLTE: bools[dests[pc]] = Double.compare(realA(pc), realB(pc)) <= 0; break;
+                case Opcode.BLTE: bools[dests[pc]] = Boolean.compare(boolA(pc), boolB(pc)) <= 0; break;
+                case Opcode.SLTE: bools[dests[pc]] = compareStr(pc) <= 0; break;
+
+                case Opcode.ASTORE:
+                case Opcode.AMOV: arrays[dests[pc]] = arrays[a[pc]]; break;
+                case Opcode.INEWARRAY:
+                    allocate(Budget.arrayBytes(intA(pc), 4));
+                    arrays[dests[pc]] = new int[intA(pc)];
+                    break;
+                case Opcode.RNEWARRAY:
+                    allocate(Budget.arrayBytes(intA(pc), 8));
+                    arrays[dests[pc]] = new double[intA(pc)];
+                    break;
+                case Opcode.BNEWARRAY:
+                    allocate(Budget.arrayBytes(intA(pc), 1));
+                    arrays[dests[pc]] = new boolean[intA(pc)];
+                    break;
+                case Opcode.ILEN: ints[dests[pc]] = ((int[]) arrays[a[pc]]).length; break;
+                case Opcode.RLEN: ints[dests[pc]] = ((double[]) arrays[a[pc]]).length; break;
+                case Opcode.BLEN: ints[dests[pc]] = ((boolean[]) arrays[a[pc]]).length; break;
+                case Opcode.IALOAD: ints[dests[pc]] = ((int[]) arrays[a[pc]])[intB(pc)]; break;
+                case Opcode.RALOAD: reals[dests[pc]] = ((double[]) arrays[a[pc]])[intB(pc)]; break;
+                case Opcode.BALOAD: bools[dests[pc]] = ((boolean[]) arrays[a[pc]])[intB(pc)]; break;
+                case Opcode.IASTORE: ((int[]) arrays[dests[pc]])[intB(pc)] = intA(pc); break;
+                case Opcode.RASTORE: ((double[]) arrays[dests[pc]])[intB(pc)] = realA(pc); break;
+                case Opcode.BASTORE: ((boolean[]) arrays[dests[pc]])[intB(pc)] = boolA(pc); break;
+                case Opcode.IFILL: arrays[dests[pc]] = ArrayOps.fill((int[]) arrays[a[pc]], intB(pc)); break;
+                case Opcode.RFILL: arrays[dests[pc]] = ArrayOps.fill((double[]) arrays[a[pc]], realB(pc)); break;
+                case Opcode.BFILL: arrays[dests[pc]] = ArrayOps.fill((boolean[]) arrays[a[pc]], boolB(pc)); break;
+                case Opcode.ISUM: ints[dests[pc]] = ArrayOps.sum((int[]) arrays[a[pc]]); break;
+                case Opcode.RSUM: reals[dests[pc]] = ArrayOps.sum((double[]) arrays[a[pc]]); break;
+                case Opcode.IMIN: ints[dests[pc]] = ArrayOps.min((int[]) arrays[a[pc]]); break;
+                case Opcode.RMIN: reals[dests[pc]] = ArrayOps.min((double[]) arrays[a[pc]]); break;
+                case Opcode.IMAX: ints[dests[pc]] = ArrayOps.max((int[]) arrays[a[pc]]); break;
+                case Opcode.RMAX: reals[dests[pc]] = ArrayOps.max((double[]) arrays[a[pc]]); break;
+                case Opcode.IARRAY_ADD:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.add((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_ADD:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.add((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+                case Opcode.IARRAY_SUB:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.sub((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_SUB:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.sub((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+                case Opcode.IARRAY_MULT:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.mult((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_MULT:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.mult((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+                case Opcode.IARRAY_DIV:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.div((int[]) arrays[a[pc]], (int[]) arrays[b[pc]]);
+                    break;
+                case Opcode.RARRAY_DIV:
+                    allocate(Budget.bytes(arrays[a[pc]]));
+                    arrays[dests[pc]] = ArrayOps.div((double[]) arrays[a[pc]], (double[]) arrays[b[pc]]);
+                    break;
+
+                case Opcode.JUMP:
+                    pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                    continue;
+                case Opcode.IFTRUE_JUMP:
+                    if (boolA(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.IFFALSE_JUMP:
+                    if (!boolA(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+
+                case Opcode.IEQ_JUMP:
+                    if (intA(pc) == intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.INEQ_JUMP:
+                    if (intA(pc) != intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.IGT_JUMP:
+                    if (intA(pc) > intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.IGTE_JUMP:
+                    if (intA(pc) >= intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.ILT_JUMP:
+                    if (intA(pc) < intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.ILTE_JUMP:
+                    if (intA(pc) <= intB(pc)) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.REQ_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) == 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RNEQ_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) != 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RGT_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) > 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RGTE_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) >= 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RLT_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) < 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+                case Opcode.RLTE_JUMP:
+                    if (Double.compare(realA(pc), realB(pc)) <= 0) {
+                        pc = dests[pc] <= pc ? backEdge(pc) : dests[pc];
+                        continue;
+                    }
+                    break;
+
+                case Opcode.PAR_FOR:
+                    pc = parallelFor(pc);
+                    continue;
+                case Opcode.PAR_NEXT:
+                    if (++ints[a[pc]] < (worker ? chunkEnd : intB(pc))) {
+                        pc = spend(pc, dests[pc]);
+                        continue;
+                    }
+                    if (worker) return pc + 1;
+                    break;
+                // reductions only act when their loop is forked; parallelFor combines them
+                case Opcode.IREDUCE_ADD:
+                case Opcode.IREDUCE_MULT:
+                case Opcode.IREDUCE_MIN:
+                case Opcode.IREDUCE_MAX:
+                case Opcode.RREDUCE_ADD:
+                case Opcode.RREDUCE_MULT:
+                case Opcode.RREDUCE_MIN:
+                case Opcode.RREDUCE_MAX: break;
+
+                case Opcode.IARG: stack.pushInt(intA(pc)); break;
+                case Opcode.RARG: stack.pushReal(realA(pc)); break;
+                case Opcode.BARG: stack.pushBool(boolA(pc)); break;
+                case Opcode.SARG: stack.pushStr(strA(pc)); break;
+                case Opcode.AARG: stack.pushArray(arrays[a[pc]]); break;
+                case Opcode.ICALL:
+                case Opcode.RCALL:
+                case Opcode.BCALL:
+                case Opcode.SCALL:
+                case Opcode.ACALL:
+                    pc = call(pc);
+                    continue;
+                case Opcode.IRET: {
+                    int value = intA(pc);
+                    int call = stack.leave(frame);
+                    ints[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.RRET: {
+                    double value = realA(pc);
+                    int call = stack.leave(frame);
+                    reals[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.BRET: {
+                    boolean value = boolA(pc);
+                    int call = stack.leave(frame);
+                    bools[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.SRET: {
+                    Object value = strA(pc);
+                    int call = stack.leave(frame);
+                    strs[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+                case Opcode.ARET: {
+                    Object value = arrays[a[pc]];
+                    int call = stack.leave(frame);
+                    arrays[dests[call]] = value;
+                    pc = call + 1;
+                    continue;
+                }
+            }
 
-        if (result.type == Double.class) {
-            Double value = getDoubleValueFromExpression(command.left);
-            result.value = value + 1;
+            pc++;
         }
-        else if (result.type == Integer.class) {
-            Integer value = getIntegerValueFromExpression(command.left);
-            result.value = value + 1;
+        return pc;
+    }
+
+    // counts every instruction; compiled loops are bypassed and parallel loops run on this thread so the counts
+    // stay exact
+    private void profile(int pc) {
+        profiler.start();
+        try {
+            interpretProfiled(pc);
+        } finally {
+            profiler.pc = -1;
+            profiler.stop();
         }
     }
 
-    private void dec(Command command) {
-        Var result = temps.get(command.result);
+    // counts a taken back-edge and, once the loop is hot, continues it in compiled code, which spends fuel at
+    // its own back-edges and returns to the loop head when it runs out
+    private int backEdge(int pc) {
+        int next = spend(pc, dests[pc]);
+        if (loops == null || profiler != null || next != dests[pc]) return next;
 
-        if (result.type == Double.class) {
-            Double value = getDoubleValueFromExpression(command.left);
-            result.value = value - 1;
-        }
-        else if (result.type == Integer.class) {
-            Integer value = getIntegerValueFromExpression(command.left);
-            result.value = value - 1;
+        CompiledLoop loop = loops[pc];
+        if (loop == null && ++backEdges[pc] == compileThreshold) {
+            loop = compiled.compile(pc);
         }
+        if (loop == null) return next;
+        next = loop.execute(frame);
+        return frame.fuel < 0 ? checkpoint(next) : next;
     }
 
-    private void and(Command command) {
-        Boolean left = (Boolean) getValueFromExpression(command.left);
-        Boolean right = (Boolean) getValueFromExpression(command.right);
-        
-        Var result = temps.get(command.result);
-        result.value = left && right;
+    // enters the function the CALL at pc names and returns its entry; a call is charged the length of the
+    // function, so recursion without loops still runs out of fuel
+    private int call(int pc) {
+        Function function = functions[a[pc]];
+        stack.enter(function, pc, frame, maxCallDepth);
+        calls++;
+        frame.fuel -= function.length;
+        return frame.fuel < 0 ? checkpoint(function.entry) : function.entry;
     }
 
-    private void or(Command command) {
-        Boolean left = (Boolean) getValueFromExpression(command.left);
-        Boolean right = (Boolean) getValueFromExpression(command.right);
-        
-        Var result = temps.get(command.result);
-        result.value = left || right;
+    // charges one iteration of the loop from target to pc, and returns where to go next
+    private int spend(int pc, int target) {
+        frame.fuel -= pc - target + 1;
+        return frame.fuel < 0 ? checkpoint(target) : target;
     }
 
-    private void not(Command command) {
-        Boolean exp = (Boolean) getValueFromExpression(command.left);
-        
-        Var result = temps.get(command.result);
-        result.value = !exp;
+    // out of fuel: charges what was spent against the limits, which throws when one is exceeded, then refuels;
+    // once the time slice is over it suspends by jumping past the end, and the next slice resumes at pc
+    private int checkpoint(int pc) {
+        long spent = (long) granted - frame.fuel;
+        executed += spent;
+        granted = frame.fuel;
+        if (budget != null) budget.charge(spent, frame);
+        refuel();
+        if (worker || sliceEnd == 0 || System.nanoTime() - sliceEnd < 0) return pc;
+        suspended = true;
+        resumeAt = pc;
+        return ops.length;
     }
 
-    private void eq(Command command) {
-        Comparable left = (Comparable) getValueFromExpression(command.left);
-        Comparable right = (Comparable) getValueFromExpression(command.right);
+    // charges an allocation against the memory limit before it happens, as a single one can take far more than
+    // the limit, and the next check would only come once the JVM is out of memory
+    private void allocate(long bytes) {
+        if (!frame.allocate(bytes)) frame.allowance = budget.allowance(frame, bytes);
+    }
 
-        Var result = temps.get(command.result);
-        result.value = left.equals(right);
+    // without limits or a time slice the fuel only runs out every two billion instructions
+    private void refuel() {
+        if (budget != null) granted = budget.grant();
+        else granted = sliceEnd != 0 ? Budget.CHECK_INTERVAL : Integer.MAX_VALUE;
+        frame.fuel = granted;
     }
 
-    private void neq(Command command) {
-        Comparable left = (Comparable) getValueFromExpression(command.left);
-        Comparable right = (Comparable) getValueFromExpression(command.right);
+    // splits the iterations into equal chunks and runs each on a worker runner with its own copy of the frame,
+    // then takes the frame of the last chunk, as a sequential run would end with it, and the combined
+    // reductions; short loops, and runners without a pool or with a profiler, run the loop in place
+    private int parallelFor(int pc) {
+        int from = ints[a[pc]];
+        int to = intB(pc);
+        if (from >= to) return dests[pc];
+
+        long iterations = (long) to - from;
+        int chunks = pool == null || profiler != null
+            ? 1
+            : (int) Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, iterations / MIN_CHUNK_SIZE);
+        if (chunks < 2) return pc + 1;
+
+        if (parallelLoops == null) parallelLoops = new ParallelLoop[ops.length];
+        ParallelLoop loop = parallelLoops[pc];
+        if (loop == null) {
+            loop = new ParallelLoop(program, pc);
+            parallelLoops[pc] = loop;
+        }
+        // a body that never finishes an iteration runs in place, where a limit or the scheduler can stop it
+        if (loop.next < 0) return pc + 1;
+
+        Runner[] runners = workers(chunks);
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int start = (int) (from + iterations * chunk / chunks);
+            int end = (int) (from + iterations * (chunk + 1) / chunks);
+            tasks[chunk] = new Chunk(runners[chunk], frame, loop, start, end);
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
 
-        Var result = temps.get(command.result);
-        result.value = !left.equals(right);
+        loop.combine(frame, runners, chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            executed += runners[chunk].executed;
+            calls += runners[chunk].calls;
+        }
+        frame.copyFrom(runners[chunks - 1].frame);
+        return loop.next + 1;
     }
 
-    private void gt(Command command) {
-        Comparable left = (Comparable) getValueFromExpression(command.left);
-        Comparable right = (Comparable) getValueFromExpression(command.right);
+    private Runner[] workers(int count) {
+        if (workers == null || workers.length < count) {
+            Runner[] grown = new Runner[count];
+            for (int i = 0; i < count; i++) {
+                grown[i] = workers != null && i < workers.length ? workers[i] : new Runner(program, compiled);
+                grown[i].worker = true;
+            }
+            workers = grown;
+        }
+        for (int i = 0; i < count; i++) {
+            workers[i].setCompiledLoops(compiled);
+            workers[i].compileThreshold = compileThreshold;
+            workers[i].budget = budget;
+            workers[i].frame.allowance = frame.allowance / count;
+            workers[i].maxCallDepth = maxCallDepth;
+        }
+        return workers;
+    }
+
+    // one range of a parallel for's iterations, run from the instruction after PAR_FOR until PAR_NEXT
+    // reaches the end of the range
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Runner runner;
+        private final Frame frame;
+        private final ParallelLoop loop;
+        private final int start;
+        private final int end;
+
+        Chunk(Runner runner, Frame frame, ParallelLoop loop, int start, int end) {
+            this.runner = runner;
+            this.frame = frame;
+            this.loop = loop;
+            this.start = start;
+            this.end = end;
+        }
 
-        Var result = temps.get(command.result);
-        result.value = left.compareTo(right) > 0;
+        @Override
+        protected void compute() {
+            runner.frame.copyFrom(frame);
+            loop.begin(runner.frame);
+            runner.ints[loop.index] = start;
+            runner.chunkEnd = end;
+            runner.refuel();
+            runner.executed = 0;
+            runner.calls = 0;
+            if (runner.stack != null) runner.stack.clear();
+            runner.interpret(loop.head);
+            long spent = (long) runner.granted - runner.frame.fuel;
+            runner.executed += spent;
+            if (runner.budget != null) runner.budget.add(spent);
+        }
     }
 
-    private void gte(Command command) {
-        Comparable left = (Comparable) getValueFromExpression(command.left);
-        Comparable right = (Comparable) getValueFromExpression(command.right);
+    private int compareStr(int pc) {
+        return Rope.compare(strA(pc), strB(pc));
+    }
 
-        Var result = temps.get(command.result);
-        result.value = left.compareTo(right) >= 0;
+    private int intA(int pc) {
+        return (aKinds[pc] & Program.CONST) == 0 ? ints[a[pc]] : intPool[a[pc]];
     }
 
-    private void lt(Command command) {
-        Comparable left = (Comparable) getValueFromExpression(command.left);
-        Comparable right = (Comparable) getValueFromExpression(command.right);
+    private int intB(int pc) {
+        return (bKinds[pc] & Program.CONST) == 0 ? ints[b[pc]] : intPool[b[pc]];
+    }
 
-        Var result = temps.get(command.result);
-        result.value = left.compareTo(right) < 0;
+    private double realA(int pc) {
+        return (aKinds[pc] & Program.CONST) == 0 ? reals[a[pc]] : realPool[a[pc]];
     }
 
-    private void lte(Command command) {
-        Comparable left = (Comparable) getValueFromExpression(command.left);
-        Comparable right = (Comparable) getValueFromExpression(command.right);
+    private double realB(int pc) {
+        return (bKinds[pc] & Program.CONST) == 0 ? reals[b[pc]] : realPool[b[pc]];
+    }
 
-        Var result = temps.get(command.result);
-        result.value = left.compareTo(right) <= 0;
+    private boolean boolA(int pc) {
+        return (aKinds[pc] & Program.CONST) == 0 ? bools[a[pc]] : boolPool[a[pc]];
     }
 
-    private Double getDoubleValueFromExpression(Expression expression) {
-        if (expression.type.equals(Constants.T_REAL)) return (Double) getValueFromExpression(expression);
-        if (expression.type.equals(Constants.T_INT)) return Double.valueOf((Integer) getValueFromExpression(expression));
-        return null;
+    private boolean boolB(int pc) {
+        return (bKinds[pc] & Program.CONST) == 0 ? bools[b[pc]] : boolPool[b[pc]];
     }
 
-    private Integer getIntegerValueFromExpression(Expression expression) {
-        if (expression.type.equals(Constants.T_REAL)) return (int) Math.floor((Double) getValueFromExpression(expression));
-        if (expression.type.equals(Constants.T_INT)) return (Integer) getValueFromExpression(expression);
-        return null;
+    private Object strA(int pc) {
+        return (aKinds[pc] & Program.CONST) == 0 ? strs[a[pc]] : strPool[a[pc]];
     }
 
-    private Object getValueFromExpression(Expression expression) {
-        if (expression instanceof Variable) return vars.get(((Variable) expression).name).value;
-        if (expression instanceof Operation) return temps.get(((Operation) expression).temp).value;
-        if (expression instanceof Literal) return ((Literal) expression).value;
-        return null;
+    private Object strB(int pc) {
+        return (bKinds[pc] & Program.CONST) == 0 ? strs[b[pc]] : strPool[b[pc]];
     }
 }
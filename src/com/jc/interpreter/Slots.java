@@ -0,0 +1,135 @@
+package com.jc.interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.jc.Constants;
+import com.jc.node.Expression;
+import com.jc.node.Literal;
+import com.jc.node.Operation;
+import com.jc.node.Variable;
+
+public class Slots {
+    public static final int INT = 0;
+    public static final int REAL = 1;
+    public static final int BOOL = 2;
+    public static final int STR = 3;
+    public static final int ARRAY = 4;
+    public static final int TYPES = 5;
+
+    private HashMap<String, Integer> varTypes;
+    private HashMap<String, Integer> varIndexes;
+    private HashMap<String, Integer> tempTypes;
+    private HashMap<String, Integer> tempIndexes;
+    private int[] counts;
+
+    public Slots(HashMap<String, String> symbolTable, HashMap<String, String> tempTable) {
+        varTypes = new HashMap<>();
+        varIndexes = new HashMap<>();
+        tempTypes = new HashMap<>();
+        tempIndexes = new HashMap<>();
+        counts = new int[TYPES];
+
+        assign(symbolTable, varTypes, varIndexes);
+        assign(tempTable, tempTypes, tempIndexes);
+    }
+
+    // an empty layout for an allocator to fill with putVariable and putTemp
+    public Slots() {
+        varTypes = new HashMap<>();
+        varIndexes = new HashMap<>();
+        tempTypes = new HashMap<>();
+        tempIndexes = new HashMap<>();
+        counts = new int[TYPES];
+    }
+
+    private void assign(HashMap<String, String> table, HashMap<String, Integer> types, HashMap<String, Integer> indexes) {
+        for (Map.Entry<String, String> entry : table.entrySet()) {
+            int type = typeOf(entry.getValue());
+            types.put(entry.getKey(), type);
+            indexes.put(entry.getKey(), counts[type]++);
+        }
+    }
+
+    public void putVariable(String name, int type, int slot) {
+        put(varTypes, varIndexes, name, type, slot);
+    }
+
+    public void putTemp(String name, int type, int slot) {
+        put(tempTypes, tempIndexes, name, type, slot);
+    }
+
+    private void put(HashMap<String, Integer> types, HashMap<String, Integer> indexes, String name, int type, int slot) {
+        types.put(name, type);
+        indexes.put(name, slot);
+        counts[type] = Math.max(counts[type], slot + 1);
+    }
+
+    // places the slots of other after these, as the block of a function's slots follows the main program's;
+    // returns where the block of each type starts
+    public int[] append(Slots other) {
+        int[] bases = counts.clone();
+        for (Map.Entry<String, Integer> entry : other.varIndexes.entrySet()) {
+            int type = other.varTypes.get(entry.getKey());
+            putVariable(entry.getKey(), type, bases[type] + entry.getValue());
+        }
+        for (Map.Entry<String, Integer> entry : other.tempIndexes.entrySet()) {
+            int type = other.tempTypes.get(entry.getKey());
+            putTemp(entry.getKey(), type, bases[type] + entry.getValue());
+        }
+        for (int type = 0; type < TYPES; type++) {
+            counts[type] = bases[type] + other.counts[type];
+        }
+        return bases;
+    }
+
+    public boolean containsVariable(String name) {
+        return varIndexes.containsKey(name);
+    }
+
+    public boolean containsTemp(String name) {
+        return tempIndexes.containsKey(name);
+    }
+
+    public int total() {
+        return counts[INT] + counts[REAL] + counts[BOOL] + counts[STR] + counts[ARRAY];
+    }
+
+    public static int typeOf(String type) {
+        if (type.equals(Constants.T_INT)) return INT;
+        if (type.equals(Constants.T_REAL)) return REAL;
+        if (type.equals(Constants.T_BOOL)) return BOOL;
+        if (type.equals(Constants.T_STR)) return STR;
+        return ARRAY;
+    }
+
+    public int count(int type) {
+        return counts[type];
+    }
+
+    public Frame newFrame() {
+        return new Frame(counts[INT], counts[REAL], counts[BOOL], counts[STR], counts[ARRAY]);
+    }
+
+    public Operand resolve(Expression expression) {
+        if (expression == null) return null;
+        if (expression instanceof Variable) return resolveVariable(((Variable) expression).name);
+        if (expression instanceof Operation) return resolveTemp(((Operation) expression).temp);
+
+        Literal literal = (Literal) expression;
+        Operand operand = new Operand(typeOf(literal.type), -1);
+        if (operand.type == INT) operand.intValue = (Integer) literal.value;
+        else if (operand.type == REAL) operand.realValue = (Double) literal.value;
+        else if (operand.type == BOOL) operand.boolValue = (Boolean) literal.value;
+        else operand.strValue = literal.value;
+        return operand;
+    }
+
+    public Operand resolveVariable(String name) {
+        return new Operand(varTypes.get(name), varIndexes.get(name));
+    }
+
+    public Operand resolveTemp(String name) {
+        return new Operand(tempTypes.get(name), tempIndexes.get(name));
+    }
+}
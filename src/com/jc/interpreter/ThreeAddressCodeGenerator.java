@@ -1,6 +1,7 @@
 package com.jc.interpreter;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import com.jc.node.*;
@@ -8,190 +9,451 @@ import com.jc.node.*;
 import static com.jc.Constants.*;
 
 public class ThreeAddressCodeGenerator {
+    // the most instructions a function may have for its calls to be replaced by its code
+    public static final int DEFAULT_INLINE_LIMIT = 24;
+
+    private int conversionSequence;
+    private HashMap<String, String> symbolTable;
+    private HashMap<String, String> tempTable;
+    private Emitter emitter;
+    private List<FunctionCode> functions;
+    // the function being generated, null in the main program
+    private FunctionCode function;
+    private Inliner inliner;
+
+    public ThreeAddressCodeGenerator(HashMap<String, String> symbolTable, HashMap<String, String> tempTable) {
+        this.symbolTable = symbolTable;
+        this.tempTable = tempTable;
+        conversionSequence = 1;
+        setInlineLimit(DEFAULT_INLINE_LIMIT);
+    }
 
-    private int labelSequence;
-
-    public ThreeAddressCodeGenerator() {
-        labelSequence = 1;
+    // 0 calls every function
+    public void setInlineLimit(int limit) {
+        inliner = limit > 0 ? new Inliner(symbolTable, tempTable, limit) : null;
     }
-    
+
+    // the main program; the functions it declares are left in getFunctions
     public List<Command> generate(Node tree) {
-        String nextLabel = newLabel();
-        List<Command> code = new ArrayList<>();
+        emitter = new Emitter();
+        functions = new ArrayList<>();
+        int nextLabel = emitter.newLabel();
         
         for (Node node : tree.children) {
-            code.addAll(generateForSubtree(node, nextLabel));
+            generateForSubtree(node, nextLabel);
         }
 
-        code.add(newLabelCommand(nextLabel));
-        return code;
+        emitter.label(nextLabel);
+        return emitter.getCode();
+    }
+
+    // in the order they are declared, which is their index
+    public List<FunctionCode> getFunctions() {
+        return functions;
+    }
+
+    public int getInlinedCalls() {
+        return inliner == null ? 0 : inliner.getSites();
+    }
+
+    private Expression toReal(Expression expression) {
+        if (!expression.type.equals(T_INT)) return expression;
+
+        Conversion conversion = new Conversion();
+        conversion.type = T_REAL;
+        conversion.operation = T_REAL;
+        conversion.temp = "c" + conversionSequence++;
+        tempTable.put(conversion.temp, T_REAL);
+
+        emitter.emit(Op.OP_I2R, expression, null, conversion.temp);
+        return conversion;
     }
 
-    private String newLabel() {
-        return "L" + labelSequence++;
+    private Op typed(String type, Op intOp, Op realOp, Op boolOp, Op strOp) {
+        if (type.equals(T_INT)) return intOp;
+        if (type.equals(T_REAL)) return realOp;
+        if (type.equals(T_BOOL)) return boolOp;
+        return strOp;
     }
 
-    private Command newLabelCommand(String label) {
-        return new Command(label, null, null, null, null);
+    private Op storeOp(String type) {
+        if (isArray(type)) return Op.OP_ASTORE;
+        return typed(type, Op.OP_ISTORE, Op.OP_RSTORE, Op.OP_BSTORE, Op.OP_SSTORE);
     }
 
-    private List<Command> generateForSubtree(Node tree, String nextLabel) {
-        if (tree instanceof Declaration) return new ArrayList<>();
-        else if (tree instanceof Assignment) return generateCommands((Assignment) tree);
-        else if (tree instanceof Increment) return generateCommands((Increment) tree);
-        else if (tree instanceof Operation) return generateCommands((Operation) tree, nextLabel);
-        else if (tree instanceof Conditional) return generateCommands((Conditional) tree, nextLabel);
-        else if (tree instanceof WhileLoop) return generateCommands((WhileLoop) tree, nextLabel);
-        else if (tree instanceof DoWhileLoop) return generateCommands((DoWhileLoop) tree, nextLabel);
-        else if (tree instanceof ForLoop) return generateCommands((ForLoop) tree, nextLabel);
-        else if (tree instanceof Print) return generateCommands((Print) tree);
-        else if (tree instanceof Expression) return new ArrayList<>();
-        else if (tree instanceof Node) return generateCommands(tree);
-        return new ArrayList<>();
+    private Op argumentOp(String type) {
+        if (isArray(type)) return Op.OP_AARG;
+        return typed(type, Op.OP_IARG, Op.OP_RARG, Op.OP_BARG, Op.OP_SARG);
+    }
+
+    private Op callOp(String type) {
+        if (isArray(type)) return Op.OP_ACALL;
+        return typed(type, Op.OP_ICALL, Op.OP_RCALL, Op.OP_BCALL, Op.OP_SCALL);
+    }
+
+    private Op returnOp(String type) {
+        if (isArray(type)) return Op.OP_ARET;
+        return typed(type, Op.OP_IRET, Op.OP_RRET, Op.OP_BRET, Op.OP_SRET);
+    }
+
+    private boolean isArray(String type) {
+        return type.equals(T_INT_ARRAY) || type.equals(T_REAL_ARRAY) || type.equals(T_BOOL_ARRAY);
+    }
+
+    private Op arrayTyped(String type, Op intOp, Op realOp, Op boolOp) {
+        if (type.equals(T_INT_ARRAY)) return intOp;
+        if (type.equals(T_REAL_ARRAY)) return realOp;
+        return boolOp;
+    }
+
+    // commands take the source line of the innermost statement they were generated for
+    private void generateForSubtree(Node tree, int nextLabel) {
+        if (tree == null || tree.line == 0) {
+            generateForNode(tree, nextLabel);
+            return;
+        }
+
+        int previous = emitter.setLine(tree.line);
+        generateForNode(tree, nextLabel);
+        emitter.setLine(previous);
     }
 
-    private List<Command> generateCommands(Node tree) {
-        List<Command> code = new ArrayList<>();
-        String nextLabel = newLabel();
+    private void generateForNode(Node tree, int nextLabel) {
+        if (tree instanceof Declaration) return;
+        else if (tree instanceof FunctionDeclaration) generateFunction((FunctionDeclaration) tree);
+        else if (tree instanceof Return) generateCommands((Return) tree);
+        else if (tree instanceof Assignment) generateCommands((Assignment) tree);
+        else if (tree instanceof ElementAssignment) generateCommands((ElementAssignment) tree);
+        else if (tree instanceof Increment) generateCommands((Increment) tree);
+        else if (tree instanceof Operation) generateCommands((Operation) tree, nextLabel);
+        else if (tree instanceof Conditional) generateCommands((Conditional) tree, nextLabel);
+        else if (tree instanceof WhileLoop) generateCommands((WhileLoop) tree, nextLabel);
+        else if (tree instanceof DoWhileLoop) generateCommands((DoWhileLoop) tree, nextLabel);
+        else if (tree instanceof ForLoop) generateCommands((ForLoop) tree, nextLabel);
+        else if (tree instanceof ParallelForLoop) generateCommands((ParallelForLoop) tree, nextLabel);
+        else if (tree instanceof Print) generateCommands((Print) tree);
+        else if (tree instanceof Expression) return;
+        else if (tree instanceof Node) generateCommands(tree);
+    }
 
+    private void generateCommands(Node tree) {
         if (tree.children != null) {
+            int nextLabel = emitter.newLabel();
             for (Node node : tree.children) {
-                code.addAll(generateForSubtree(node, nextLabel));
+                generateForSubtree(node, nextLabel);
             }
     
-            code.add(newLabelCommand(nextLabel));
+            emitter.label(nextLabel);
+        }
+    }
+
+    // a function is generated into code of its own. Its variables start from zero on every call, as the main
+    // program's do; one that ends without a return gives the zero of its type.
+    private void generateFunction(FunctionDeclaration declaration) {
+        Emitter outer = emitter;
+        emitter = new Emitter();
+        emitter.setLine(declaration.line);
+        function = new FunctionCode(declaration, emitter.newLabel());
+
+        for (Declaration local : collectDeclarations(declaration, new ArrayList<>())) {
+            if (!isArray(local.type)) emitter.emit(storeOp(local.type), zero(local.type), null, local.name);
+        }
+        generateCommands((Node) declaration);
+        emitter.emit(storeOp(declaration.type), defaultValue(declaration), null, declaration.result);
+        emitter.label(function.end);
+        emitter.emit(returnOp(declaration.type), result(declaration), null, null);
+
+        function.code = emitter.getCode();
+        functions.add(function);
+        function = null;
+        emitter = outer;
+    }
+
+    private List<Declaration> collectDeclarations(Node node, List<Declaration> declarations) {
+        if (node == null) return declarations;
+        if (node instanceof Declaration) declarations.add((Declaration) node);
+        if (node instanceof ForLoop) collectDeclarations(((ForLoop) node).declaration, declarations);
+        if (node.children != null) {
+            for (Node child : node.children) {
+                collectDeclarations(child, declarations);
+            }
         }
+        return declarations;
+    }
+
+    private Literal zero(String type) {
+        Literal literal = new Literal();
+        literal.type = type;
+        if (type.equals(T_INT)) literal.value = 0;
+        else if (type.equals(T_REAL)) literal.value = 0.0;
+        else if (type.equals(T_BOOL)) literal.value = false;
+        else literal.value = "";
+        return literal;
+    }
 
-        return code;
+    // an array function returns an empty array
+    private Expression defaultValue(FunctionDeclaration declaration) {
+        if (!isArray(declaration.type)) return zero(declaration.type);
+
+        Operation empty = new Operation();
+        empty.type = declaration.type;
+        empty.temp = declaration.name + ".empty";
+        tempTable.put(empty.temp, declaration.type);
+        Literal length = zero(T_INT);
+        emitter.emit(arrayTyped(declaration.type, Op.OP_INEWARRAY, Op.OP_RNEWARRAY, Op.OP_BNEWARRAY), length, null, empty.temp);
+        return empty;
     }
 
-    private List<Command> generateCommands(Increment increment) {
-        List<Command> code = new ArrayList<>();
+    private Variable result(FunctionDeclaration declaration) {
+        Variable variable = new Variable();
+        variable.name = declaration.result;
+        variable.type = declaration.type;
+        return variable;
+    }
+
+    private void generateCommands(Return ret) {
+        int valueNextLabel = emitter.newLabel();
+
+        Expression value = (Expression) ret.children.get(0);
+
+        generateForSubtree(value, valueNextLabel);
+        emitter.label(valueNextLabel);
+        emitter.emit(storeOp(value.type), value, null, function.declaration.result);
+        emitter.jump(function.end);
+    }
+
+    // the arguments are pushed as they are computed, so a call among them pushes and pops its own above them.
+    // A small function's code is copied in instead, with the arguments stored in the copy's parameters.
+    private void generateCall(Call call) {
+        FunctionDeclaration declaration = call.function;
+        FunctionCode callee = declaration.index < functions.size() ? functions.get(declaration.index) : null;
+        String site = callee != null && inliner != null && inliner.accepts(callee) ? inliner.newSite() : null;
+
+        for (int i = 0; i < call.children.size(); i++) {
+            int argumentNextLabel = emitter.newLabel();
+            Expression argument = (Expression) call.children.get(i);
+
+            generateForSubtree(argument, argumentNextLabel);
+            emitter.label(argumentNextLabel);
+            if (site != null) emitter.emit(storeOp(argument.type), argument, null, inliner.parameter(callee, i, site));
+            else emitter.emit(argumentOp(argument.type), argument, null, null);
+        }
+
+        if (site != null) inliner.copy(callee, site, call.temp, emitter);
+        else emitter.call(callOp(call.type), declaration.index, call.temp);
+    }
 
+    private void generateCommands(Increment increment) {
+        boolean real = increment.type.equals(T_REAL);
         Op op = null;
-        if (increment.operation.equals(OP_INC)) op = Op.OP_INC;
-        else if (increment.operation.equals(OP_DEC)) op = Op.OP_DEC;
+        if (increment.operation.equals(OP_INC)) op = real ? Op.OP_RINC : Op.OP_IINC;
+        else if (increment.operation.equals(OP_DEC)) op = real ? Op.OP_RDEC : Op.OP_IDEC;
 
         Expression variableExp = (Expression) increment.children.get(0);
 
-        code.add(new Command(op, variableExp, null, increment.temp));
-        code.add(new Command(Op.OP_STORE, increment, null, increment.variable));
-
-        return code;
+        emitter.emit(op, variableExp, null, increment.temp);
+        emitter.emit(storeOp(increment.type), increment, null, increment.variable);
     }
 
-    private List<Command> generateCommands(WhileLoop whileLoop, String nextLabel) {
-        String childIfFalseLabel = newLabel();
-        String testLabel = newLabel();
-        String testNextLabel = newLabel();
-        
-        List<Command> code = new ArrayList<>();
-        code.add(newLabelCommand(testLabel));
-        code.addAll(generateForSubtree(whileLoop.test, testNextLabel));
-        code.add(newLabelCommand(testNextLabel));
-        code.add(new Command(Op.OP_IFFALSE_JUMP, whileLoop.test, null, childIfFalseLabel));
-        code.addAll(generateForSubtree(whileLoop.children.get(0), nextLabel));
-        code.add(new Command(Op.OP_JUMP, null, null, testLabel));
-        code.add(newLabelCommand(childIfFalseLabel));
-
-        return code;
-    }
-
-    private List<Command> generateCommands(ForLoop forLoop, String nextLabel) {
-        String ifFalseLabel = newLabel();
-        String testLabel = newLabel();
-        String testNextLabel = newLabel();
-        String incrementNextLabel = newLabel();
-
-        List<Command> code = new ArrayList<>();
-        code.addAll(generateForSubtree(forLoop.declaration, null));
-        code.add(newLabelCommand(testLabel));
-        code.addAll(generateForSubtree(forLoop.test, testNextLabel));
-        code.add(newLabelCommand(testNextLabel));
-        code.add(new Command(Op.OP_IFFALSE_JUMP, forLoop.test, null, ifFalseLabel));
-        code.addAll(generateForSubtree(forLoop.children.get(0), nextLabel));
-        code.add(newLabelCommand(nextLabel));
-        code.addAll(generateForSubtree(forLoop.increment, incrementNextLabel));
-        code.add(newLabelCommand(incrementNextLabel));
-        code.add(new Command(Op.OP_JUMP, null, null, testLabel));
-        code.add(newLabelCommand(ifFalseLabel));
-
-        return code;
-    }
-
-    private List<Command> generateCommands(DoWhileLoop doWhileLoop, String nextLabel) {
-        String ifTrueLabel = newLabel();
-        String testNextLabel = newLabel();
+    private void generateCommands(WhileLoop whileLoop, int nextLabel) {
+        int childIfFalseLabel = emitter.newLabel();
+        int testLabel = emitter.newLabel();
         
-        List<Command> code = new ArrayList<>();
-        code.add(newLabelCommand(ifTrueLabel));
-        code.addAll(generateForSubtree(doWhileLoop.children.get(0), nextLabel));
-        code.addAll(generateForSubtree(doWhileLoop.test, testNextLabel));
-        code.add(newLabelCommand(testNextLabel));
-        code.add(new Command(Op.OP_IFTRUE_JUMP, doWhileLoop.test, null, ifTrueLabel));
+        emitter.label(testLabel);
+        generateBranch(whileLoop.test, false, childIfFalseLabel);
+        generateForSubtree(whileLoop.children.get(0), nextLabel);
+        emitter.jump(testLabel);
+        emitter.label(childIfFalseLabel);
+    }
 
-        return code;
+    private void generateCommands(ForLoop forLoop, int nextLabel) {
+        int ifFalseLabel = emitter.newLabel();
+        int testLabel = emitter.newLabel();
+        int incrementNextLabel = emitter.newLabel();
+
+        generateForSubtree(forLoop.declaration, 0);
+        emitter.label(testLabel);
+        generateBranch(forLoop.test, false, ifFalseLabel);
+        generateForSubtree(forLoop.children.get(0), nextLabel);
+        generateForSubtree(forLoop.increment, incrementNextLabel);
+        emitter.label(incrementNextLabel);
+        emitter.jump(testLabel);
+        emitter.label(ifFalseLabel);
     }
 
-    private List<Command> generateCommands(Conditional conditional, String nextLabel) {
-        String ifFalseLabel = newLabel();
-        String testNextLabel = newLabel();
+    // laid out as a sequential loop the optimizer can work on: PAR_FOR enters it unless it is empty and
+    // PAR_NEXT steps the index, while the runner splits the iterations between threads at PAR_FOR.
+    // The reductions follow the loop, where the partial results are combined.
+    private void generateCommands(ParallelForLoop loop, int nextLabel) {
+        int fromNextLabel = emitter.newLabel();
+        int toNextLabel = emitter.newLabel();
+        int bodyLabel = emitter.newLabel();
+        int bodyNextLabel = emitter.newLabel();
+        int endLabel = emitter.newLabel();
+
+        generateForSubtree(loop.from, fromNextLabel);
+        emitter.label(fromNextLabel);
+        emitter.emit(Op.OP_ISTORE, loop.from, null, loop.index.name);
+        generateForSubtree(loop.to, toNextLabel);
+        emitter.label(toNextLabel);
+        emitter.jump(Op.OP_PAR_FOR, loop.index, loop.to, null, endLabel);
+
+        Node body = loop.children.get(0);
+        emitter.label(bodyLabel);
+        resetDeclarations(body);
+        generateForSubtree(body, bodyNextLabel);
+        emitter.label(bodyNextLabel);
+        emitter.jump(Op.OP_PAR_NEXT, loop.index, loop.to, loop.index.name, bodyLabel);
+        emitter.label(endLabel);
+
+        for (Reduction reduction : loop.reductions) {
+            emitter.emit(reductionOp(reduction), reduction.variable, null, null);
+        }
+    }
+
+    // the variables a parallel for body declares start from zero in every iteration, like a function's do on
+    // every call, so no iteration sees what the one before it on the same thread left and the result does not
+    // depend on how the range is chunked. An array declared at the top of the body is always given a new one;
+    // one declared further in starts out empty.
+    private void resetDeclarations(Node body) {
+        for (Declaration local : collectDeclarations(body, new ArrayList<>())) {
+            if (!isArray(local.type)) {
+                emitter.emit(storeOp(local.type), zero(local.type), null, local.name);
+            }
+            else if (!declaresAtTop(body, local)) {
+                String empty = local.name + ".reset";
+                tempTable.put(empty, local.type);
+                emitter.emit(arrayTyped(local.type, Op.OP_INEWARRAY, Op.OP_RNEWARRAY, Op.OP_BNEWARRAY), zero(T_INT),
+                    null, empty);
+                Operation value = new Operation();
+                value.type = local.type;
+                value.temp = empty;
+                emitter.emit(storeOp(local.type), value, null, local.name);
+            }
+        }
+    }
+
+    private boolean declaresAtTop(Node body, Declaration declaration) {
+        for (Node statement : body.children) {
+            if (statement.children != null && statement.children.contains(declaration)) return true;
+        }
+        return false;
+    }
+
+    private Op reductionOp(Reduction reduction) {
+        boolean real = reduction.variable.type.equals(T_REAL);
+        if (reduction.operation.equals(OP_ADD)) return real ? Op.OP_RREDUCE_ADD : Op.OP_IREDUCE_ADD;
+        if (reduction.operation.equals(OP_MULT)) return real ? Op.OP_RREDUCE_MULT : Op.OP_IREDUCE_MULT;
+        if (reduction.operation.equals(OP_MIN)) return real ? Op.OP_RREDUCE_MIN : Op.OP_IREDUCE_MIN;
+        return real ? Op.OP_RREDUCE_MAX : Op.OP_IREDUCE_MAX;
+    }
 
-        List<Command> code = new ArrayList<>();
-        code.addAll(generateForSubtree(conditional.test, testNextLabel));
-        code.add(newLabelCommand(testNextLabel));
-        code.add(new Command(Op.OP_IFFALSE_JUMP, conditional.test, null, ifFalseLabel));
-        code.addAll(generateForSubtree(conditional.children.get(0), nextLabel));
-        code.add(new Command(Op.OP_JUMP, null, null, nextLabel));
-        code.add(newLabelCommand(ifFalseLabel));
+    private void generateCommands(DoWhileLoop doWhileLoop, int nextLabel) {
+        int ifTrueLabel = emitter.newLabel();
+        
+        emitter.label(ifTrueLabel);
+        generateForSubtree(doWhileLoop.children.get(0), nextLabel);
+        generateBranch(doWhileLoop.test, true, ifTrueLabel);
+    }
+
+    private void generateCommands(Conditional conditional, int nextLabel) {
+        int ifFalseLabel = emitter.newLabel();
+
+        generateBranch(conditional.test, false, ifFalseLabel);
+        generateForSubtree(conditional.children.get(0), nextLabel);
+        emitter.jump(nextLabel);
+        emitter.label(ifFalseLabel);
 
         if (conditional.children.size() > 1) {
-            code.addAll(generateForSubtree(conditional.children.get(1), nextLabel));
+            generateForSubtree(conditional.children.get(1), nextLabel);
+        }
+    }
+
+    // compiles a test straight to jumps: control reaches target when the test is jumpIf and falls through
+    // otherwise. and, or and not only choose where to jump, so no bool is stored for them.
+    private void generateBranch(Expression test, boolean jumpIf, int target) {
+        if (test.line == 0) {
+            generateBranchForNode(test, jumpIf, target);
+            return;
         }
 
-        return code;
+        int previous = emitter.setLine(test.line);
+        generateBranchForNode(test, jumpIf, target);
+        emitter.setLine(previous);
     }
 
-    private List<Command> generateCommands(Print print) {
-        String childNextLabel = newLabel();
+    private void generateBranchForNode(Expression test, boolean jumpIf, int target) {
+        String op = test instanceof Operation ? ((Operation) test).operation : "";
+        if (op.equals(OP_NOT)) {
+            generateBranch((Expression) test.children.get(0), !jumpIf, target);
+            return;
+        }
+
+        if (op.equals(OP_AND) || op.equals(OP_OR)) {
+            Expression left = (Expression) test.children.get(0);
+            Expression right = (Expression) test.children.get(1);
+
+            // `a and b` is false as soon as a is false, `a or b` true as soon as a is true
+            if (op.equals(OP_AND) != jumpIf) {
+                generateBranch(left, jumpIf, target);
+                generateBranch(right, jumpIf, target);
+            }
+            else {
+                int skipLabel = emitter.newLabel();
+                generateBranch(left, !jumpIf, skipLabel);
+                generateBranch(right, jumpIf, target);
+                emitter.label(skipLabel);
+            }
+            return;
+        }
+
+        int testNextLabel = emitter.newLabel();
+        generateForSubtree(test, testNextLabel);
+        emitter.label(testNextLabel);
+        emitter.jump(jumpIf ? Op.OP_IFTRUE_JUMP : Op.OP_IFFALSE_JUMP, test, target);
+    }
+
+    private void generateCommands(Print print) {
+        int childNextLabel = emitter.newLabel();
 
         Expression expression = (Expression) print.children.get(0);
 
-        List<Command> code = new ArrayList<>();
-        code.addAll(generateForSubtree(expression, childNextLabel));
-        code.add(newLabelCommand(childNextLabel));
-        code.add(new Command(Op.OP_PRINT, expression, null, null));
-        return code;
+        generateForSubtree(expression, childNextLabel);
+        emitter.label(childNextLabel);
+        emitter.emit(
+            typed(expression.type, Op.OP_IPRINT, Op.OP_RPRINT, Op.OP_BPRINT, Op.OP_SPRINT), expression, null, null);
     }
 
-    private List<Command> generateCommands(Assignment assignment) {
-        String childNextLabel = newLabel();
+    private void generateCommands(Assignment assignment) {
+        int childNextLabel = emitter.newLabel();
 
         Expression expression = (Expression) assignment.children.get(0);
 
-        List<Command> code = new ArrayList<>();
-        code.addAll(generateForSubtree(expression, childNextLabel));
-        code.add(newLabelCommand(childNextLabel));
-        code.add(new Command(Op.OP_STORE, expression, null, assignment.variable));
-        return code;
+        generateForSubtree(expression, childNextLabel);
+        emitter.label(childNextLabel);
+        emitter.emit(storeOp(expression.type), expression, null, assignment.variable);
     }
 
-    private List<Command> generateCommands(Operation operation, String nextLabel) {
-        Op op = null;
-        if (operation.operation.equals(OP_ADD)) op = Op.OP_ADD;
-        if (operation.operation.equals(OP_SUB)) op = Op.OP_SUB;
-        if (operation.operation.equals(OP_MULT)) op = Op.OP_MULT;
-        if (operation.operation.equals(OP_DIV)) op = Op.OP_DIV;
-        if (operation.operation.equals(OP_POW)) op = Op.OP_POW;
-        if (operation.operation.equals(OP_OR)) op = Op.OP_OR;
-        if (operation.operation.equals(OP_AND)) op = Op.OP_AND;
-        if (operation.operation.equals(OP_NOT)) op = Op.OP_NOT;
-        if (operation.operation.equals(OP_EQ)) op = Op.OP_EQ;
-        if (operation.operation.equals(OP_NEQ)) op = Op.OP_NEQ;
-        if (operation.operation.equals(OP_GT)) op = Op.OP_GT;
-        if (operation.operation.equals(OP_GTE)) op = Op.OP_GTE;
-        if (operation.operation.equals(OP_LT)) op = Op.OP_LT;
-        if (operation.operation.equals(OP_LTE)) op = Op.OP_LTE;
+    private void generateCommands(ElementAssignment assignment) {
+        int indexNextLabel = emitter.newLabel();
+        int valueNextLabel = emitter.newLabel();
+
+        Expression index = (Expression) assignment.children.get(0);
+        Expression value = (Expression) assignment.children.get(1);
+
+        generateForSubtree(index, indexNextLabel);
+        emitter.label(indexNextLabel);
+        generateForSubtree(value, valueNextLabel);
+        emitter.label(valueNextLabel);
+        emitter.emit(
+            typed(value.type, Op.OP_IASTORE, Op.OP_RASTORE, Op.OP_BASTORE, null), value, index, assignment.variable);
+    }
+
+    private void generateCommands(Operation operation, int nextLabel) {
+        if (operation instanceof Call) {
+            generateCall((Call) operation);
+            return;
+        }
 
         Expression left = (Expression) operation.children.get(0);
         Expression right = null;
@@ -199,66 +461,107 @@ public class ThreeAddressCodeGenerator {
             right = (Expression) operation.children.get(1);
         }
 
-        if (op == Op.OP_OR) return generateOrOperationCommands(operation, op, left, right, nextLabel);
-        else if (op == Op.OP_AND) return generateAndOperationCommands(operation, op, left, right, nextLabel);
-        else return generateStandardOperationCommands(operation, op, left, right);
+        String op = operation.operation;
+        if (op.equals(OP_OR) || op.equals(OP_AND)) generateLogicalOperationCommands(operation);
+        else if (op.equals(OP_NOT)) generateStandardOperationCommands(operation, Op.OP_NOT, left, right);
+        else if (isRelational(op)) generateStandardOperationCommands(operation, relationalOp(op, left.type), left, right);
+        else if (op.equals(OP_NEW) || isArray(left.type)) generateStandardOperationCommands(operation, arrayOp(operation, left), left, right);
+        else if (left.type.equals(T_STR)) generateStandardOperationCommands(operation, Op.OP_SCONCAT, left, right);
+        else generateArithmeticOperationCommands(operation, arithmeticOp(op, operation.type), left, right);
+    }
 
+    private boolean isRelational(String op) {
+        return op.equals(OP_EQ) || op.equals(OP_NEQ) || op.equals(OP_GT)
+            || op.equals(OP_GTE) || op.equals(OP_LT) || op.equals(OP_LTE);
     }
 
-    public List<Command> generateAndOperationCommands(
-        Operation operation, Op op, Expression left, Expression right, String nextLabel) {
-        
-        String leftNextLabel = newLabel();
-        String leftIfTrueLabel = leftNextLabel;
-        String rightNextLabel = newLabel();
+    private Op relationalOp(String op, String type) {
+        if (op.equals(OP_EQ)) return typed(type, Op.OP_IEQ, Op.OP_REQ, Op.OP_BEQ, Op.OP_SEQ);
+        if (op.equals(OP_NEQ)) return typed(type, Op.OP_INEQ, Op.OP_RNEQ, Op.OP_BNEQ, Op.OP_SNEQ);
+        if (op.equals(OP_GT)) return typed(type, Op.OP_IGT, Op.OP_RGT, Op.OP_BGT, Op.OP_SGT);
+        if (op.equals(OP_GTE)) return typed(type, Op.OP_IGTE, Op.OP_RGTE, Op.OP_BGTE, Op.OP_SGTE);
+        if (op.equals(OP_LT)) return typed(type, Op.OP_ILT, Op.OP_RLT, Op.OP_BLT, Op.OP_SLT);
+        return typed(type, Op.OP_ILTE, Op.OP_RLTE, Op.OP_BLTE, Op.OP_SLTE);
+    }
 
-        List<Command> code = new ArrayList<>();
-        code.addAll(generateForSubtree(left, leftNextLabel));
-        code.add(new Command(Op.OP_IFTRUE_JUMP, left, null, leftIfTrueLabel));
-        code.add(new Command(Op.OP_MOV, left, null, operation.temp));
-        code.add(new Command(Op.OP_JUMP, null, null, nextLabel));
-        code.add(newLabelCommand(leftNextLabel));
-        code.addAll(generateForSubtree(right, rightNextLabel));
-        code.add(newLabelCommand(rightNextLabel));
-        code.add(new Command(op, left, right, operation.temp));
+    // indexing, allocation, the builtins and element-wise arithmetic; all but allocation take the array first
+    private Op arrayOp(Operation operation, Expression left) {
+        String op = operation.operation;
+        if (op.equals(OP_NEW)) return arrayTyped(operation.type, Op.OP_INEWARRAY, Op.OP_RNEWARRAY, Op.OP_BNEWARRAY);
+
+        String type = left.type;
+        if (op.equals(OP_INDEX)) return arrayTyped(type, Op.OP_IALOAD, Op.OP_RALOAD, Op.OP_BALOAD);
+        if (op.equals(OP_LEN)) return arrayTyped(type, Op.OP_ILEN, Op.OP_RLEN, Op.OP_BLEN);
+        if (op.equals(OP_FILL)) return arrayTyped(type, Op.OP_IFILL, Op.OP_RFILL, Op.OP_BFILL);
+        if (op.equals(OP_SUM)) return arrayTyped(type, Op.OP_ISUM, Op.OP_RSUM, null);
+        if (op.equals(OP_MIN)) return arrayTyped(type, Op.OP_IMIN, Op.OP_RMIN, null);
+        if (op.equals(OP_MAX)) return arrayTyped(type, Op.OP_IMAX, Op.OP_RMAX, null);
+        if (op.equals(OP_ADD)) return arrayTyped(type, Op.OP_IARRAY_ADD, Op.OP_RARRAY_ADD, null);
+        if (op.equals(OP_SUB)) return arrayTyped(type, Op.OP_IARRAY_SUB, Op.OP_RARRAY_SUB, null);
+        if (op.equals(OP_MULT)) return arrayTyped(type, Op.OP_IARRAY_MULT, Op.OP_RARRAY_MULT, null);
+        return arrayTyped(type, Op.OP_IARRAY_DIV, Op.OP_RARRAY_DIV, null);
+    }
 
-        return code;
+    private Op arithmeticOp(String op, String type) {
+        boolean real = type.equals(T_REAL);
+        if (op.equals(OP_ADD)) return real ? Op.OP_RADD : Op.OP_IADD;
+        if (op.equals(OP_SUB)) return real ? Op.OP_RSUB : Op.OP_ISUB;
+        if (op.equals(OP_MULT)) return real ? Op.OP_RMULT : Op.OP_IMULT;
+        if (op.equals(OP_DIV)) return real ? Op.OP_RDIV : Op.OP_IDIV;
+        return real ? Op.OP_RPOW : Op.OP_IPOW;
     }
 
-    public List<Command> generateOrOperationCommands(
-        Operation operation, Op op, Expression left, Expression right, String nextLabel) {
-        
-        String leftNextLabel = newLabel();
-        String rightNextLabel = newLabel();
-        String leftIfFalseLabel = leftNextLabel;
-        
-        List<Command> code = new ArrayList<>();
-        code.addAll(generateForSubtree(left, leftNextLabel));
-        code.add(new Command(Op.OP_IFFALSE_JUMP, left, null, leftIfFalseLabel));
-        code.add(new Command(Op.OP_MOV, left, null, operation.temp));
-        code.add(new Command(Op.OP_JUMP, null, null, nextLabel));
-        code.add(newLabelCommand(leftNextLabel));
-        code.addAll(generateForSubtree(right, rightNextLabel));
-        code.add(newLabelCommand(rightNextLabel));
-        code.add(new Command(op, left, right, operation.temp));
+    // an and/or whose value is stored, printed or compared: branch on it, then set the temp once
+    private void generateLogicalOperationCommands(Operation operation) {
+        int ifFalseLabel = emitter.newLabel();
+        int doneLabel = emitter.newLabel();
+
+        generateBranchForNode(operation, false, ifFalseLabel);
+        emitter.emit(Op.OP_BMOV, boolLiteral(true), null, operation.temp);
+        emitter.jump(doneLabel);
+        emitter.label(ifFalseLabel);
+        emitter.emit(Op.OP_BMOV, boolLiteral(false), null, operation.temp);
+        emitter.label(doneLabel);
+    }
 
-        return code;
+    private Literal boolLiteral(boolean value) {
+        Literal literal = new Literal();
+        literal.type = T_BOOL;
+        literal.value = value;
+        return literal;
     }
 
-    public List<Command> generateStandardOperationCommands(
+    public void generateStandardOperationCommands(
         Operation operation, Op op, Expression left, Expression right) {
 
-        String leftNextLabel = newLabel();
-        String rightNextLabel = newLabel();
+        int leftNextLabel = emitter.newLabel();
+        int rightNextLabel = emitter.newLabel();
+
+        generateForSubtree(left, leftNextLabel);
+        emitter.label(leftNextLabel);
+        generateForSubtree(right, rightNextLabel);
+        emitter.label(rightNextLabel);
+        emitter.emit(op, left, right, operation.temp);
+    }
+
+    public void generateArithmeticOperationCommands(
+        Operation operation, Op op, Expression left, Expression right) {
+
+        if (!operation.type.equals(T_REAL)) {
+            generateStandardOperationCommands(operation, op, left, right);
+            return;
+        }
 
-        List<Command> code = new ArrayList<>();
-        code.addAll(generateForSubtree(left, leftNextLabel));
-        code.add(newLabelCommand(leftNextLabel));
-        code.addAll(generateForSubtree(right, rightNextLabel));
-        code.add(newLabelCommand(rightNextLabel));
-        code.add(new Command(op, left, right, operation.temp));
+        int leftNextLabel = emitter.newLabel();
+        int rightNextLabel = emitter.newLabel();
 
-        return code;
+        generateForSubtree(left, leftNextLabel);
+        emitter.label(leftNextLabel);
+        generateForSubtree(right, rightNextLabel);
+        emitter.label(rightNextLabel);
+        Expression realLeft = toReal(left);
+        Expression realRight = toReal(right);
+        emitter.emit(op, realLeft, realRight, operation.temp);
     }
 
 }
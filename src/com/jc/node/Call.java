@@ -0,0 +1,5 @@
+package com.jc.node;
+
+public class Call extends Operation {
+    public FunctionDeclaration function;
+}
@@ -0,0 +1,4 @@
+package com.jc.node;
+
+public class Conversion extends Operation {
+}
@@ -0,0 +1,5 @@
+package com.jc.node;
+
+public class ElementAssignment extends Node {
+    public String variable;
+}
@@ -0,0 +1,15 @@
+package com.jc.node;
+
+import java.util.List;
+
+public class FunctionDeclaration extends Node {
+    public String name;
+    public String type;
+    public int index;
+    public List<Variable> parameters;
+    // the variable a return stores its value in
+    public String result;
+    public boolean recursive;
+    // neither prints, runs a parallel for nor writes an array it did not create, so a parallel for can call it
+    public boolean parallelSafe;
+}
@@ -5,5 +5,6 @@ import java.util.List;
 public class Node {
 
     public List<Node> children;
+    public int line;
 
 }
@@ -0,0 +1,10 @@
+package com.jc.node;
+
+import java.util.List;
+
+public class ParallelForLoop extends Node {
+    public Variable index;
+    public Expression from;
+    public Expression to;
+    public List<Reduction> reductions;
+}
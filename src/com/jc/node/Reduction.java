@@ -0,0 +1,6 @@
+package com.jc.node;
+
+public class Reduction extends Node {
+    public Variable variable;
+    public String operation;
+}
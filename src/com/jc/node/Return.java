@@ -0,0 +1,4 @@
+package com.jc.node;
+
+public class Return extends Node {
+}
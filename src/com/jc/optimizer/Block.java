@@ -0,0 +1,27 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+
+public class Block {
+    public int index;
+    public List<Command> commands;
+    public List<Block> successors;
+    public List<Block> predecessors;
+
+    public Block(int index) {
+        this.index = index;
+        this.commands = new ArrayList<>();
+        this.successors = new ArrayList<>();
+        this.predecessors = new ArrayList<>();
+    }
+
+    public Command last() {
+        for (int i = commands.size() - 1; i >= 0; i--) {
+            if (!Instructions.isLabel(commands.get(i))) return commands.get(i);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.jc.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.Op;
+import com.jc.interpreter.Opcode;
+import com.jc.node.Expression;
+import com.jc.node.Literal;
+
+public class ConstantPropagation implements Pass {
+
+    @Override
+    public String getName() {
+        return "constant-propagation";
+    }
+
+    // a block only starts with the constants that are live into it: the others are never read before they are
+    // written again, and carrying every constant into every block grows with the square of the script
+    @Override
+    public List<Command> run(List<Command> code) {
+        FlowGraph graph = new FlowGraph(code);
+        Liveness liveness = new Liveness(graph);
+        List<Block> blocks = graph.getBlocks();
+        List<HashMap<String, Object>> in = new ArrayList<>(Collections.nCopies(blocks.size(), null));
+        in.set(0, new HashMap<>());
+
+        ArrayDeque<Block> work = new ArrayDeque<>();
+        work.add(graph.entry());
+        while (!work.isEmpty()) {
+            Block block = work.poll();
+            HashMap<String, Object> out = transfer(block, new HashMap<>(in.get(block.index)), false);
+
+            for (Block successor : block.successors) {
+                HashMap<String, Object> previous = in.get(successor.index);
+                HashMap<String, Object> merged = previous == null
+                    ? live(out, liveness.liveIn(successor))
+                    : meet(previous, out);
+                if (previous == null || !merged.equals(previous)) {
+                    in.set(successor.index, merged);
+                    work.add(successor);
+                }
+            }
+        }
+
+        for (Block block : blocks) {
+            if (in.get(block.index) != null) {
+                transfer(block, in.get(block.index), true);
+            }
+        }
+        return graph.toCode();
+    }
+
+    private HashMap<String, Object> live(HashMap<String, Object> state, HashSet<String> live) {
+        HashMap<String, Object> result = new HashMap<>();
+        for (String location : live) {
+            Object value = state.get(location);
+            if (value != null) result.put(location, value);
+        }
+        return result;
+    }
+
+    private HashMap<String, Object> meet(HashMap<String, Object> a, HashMap<String, Object> b) {
+        HashMap<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, Object> entry : a.entrySet()) {
+            if (entry.getValue().equals(b.get(entry.getKey()))) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    // when rewriting, the block's commands are rebuilt without the branches that can never be taken
+    private HashMap<String, Object> transfer(Block block, HashMap<String, Object> state, boolean rewrite) {
+        List<Command> kept = rewrite ? new ArrayList<>(block.commands.size()) : null;
+        for (Command command : block.commands) {
+            if (Instructions.isLabel(command)) {
+                if (rewrite) kept.add(command);
+                continue;
+            }
+
+            Object a = valueOf(command.left, state);
+            Object b = valueOf(command.right, state);
+
+            if (rewrite) {
+                int type = Instructions.operandType(command);
+                int rightType = Instructions.rightOperandType(command);
+                if (a != null && !(command.left instanceof Literal) && !Instructions.isPinned(command)) command.left = Instructions.literal(type, a);
+                if (b != null && !(command.right instanceof Literal)) command.right = Instructions.literal(rightType, b);
+
+                if (Instructions.isConditionalJump(command) && a != null) {
+                    if ((Boolean) a == (command.op == Op.OP_IFTRUE_JUMP)) {
+                        command.op = Op.OP_JUMP;
+                        command.left = null;
+                        kept.add(command);
+                    }
+                    continue;
+                }
+                kept.add(command);
+            }
+
+            String defined = Instructions.defined(command);
+            if (defined == null) continue;
+
+            Object value = null;
+            if (a != null && (command.right == null || b != null)) {
+                value = Folding.evaluate(command.op, a, b);
+            }
+
+            if (value == null) {
+                state.remove(defined);
+            }
+            else {
+                state.put(defined, value);
+                if (rewrite && !Instructions.isMove(command)) {
+                    int type = Instructions.resultType(command);
+                    command.op = Instructions.moveOp(type, Opcode.isStore(Opcode.of(command.op)));
+                    command.left = Instructions.literal(type, value);
+                    command.right = null;
+                }
+            }
+        }
+        if (rewrite) block.commands = kept;
+        return state;
+    }
+
+    private Object valueOf(Expression expression, HashMap<String, Object> state) {
+        if (expression == null) return null;
+        if (expression instanceof Literal) return ((Literal) expression).value;
+        return state.get(Instructions.location(expression));
+    }
+}
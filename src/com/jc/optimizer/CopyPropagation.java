@@ -0,0 +1,57 @@
+package com.jc.optimizer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.jc.interpreter.Command;
+import com.jc.node.Expression;
+import com.jc.node.Literal;
+
+public class CopyPropagation implements Pass {
+
+    @Override
+    public String getName() {
+        return "copy-propagation";
+    }
+
+    @Override
+    public List<Command> run(List<Command> code) {
+        FlowGraph graph = new FlowGraph(code);
+
+        for (Block block : graph.getBlocks()) {
+            HashMap<String, Expression> copies = new HashMap<>();
+
+            for (Command command : block.commands) {
+                if (Instructions.isLabel(command)) continue;
+
+                if (!Instructions.isPinned(command)) command.left = substitute(command.left, copies);
+                command.right = substitute(command.right, copies);
+
+                String defined = Instructions.defined(command);
+                if (defined == null) continue;
+
+                Iterator<Map.Entry<String, Expression>> entries = copies.entrySet().iterator();
+                while (entries.hasNext()) {
+                    Map.Entry<String, Expression> entry = entries.next();
+                    if (entry.getKey().equals(defined) || defined.equals(Instructions.location(entry.getValue()))) {
+                        entries.remove();
+                    }
+                }
+
+                if (Instructions.isMove(command) && !(command.left instanceof Literal)
+                    && !defined.equals(Instructions.location(command.left))) {
+                    copies.put(defined, command.left);
+                }
+            }
+        }
+        return graph.toCode();
+    }
+
+    private Expression substitute(Expression expression, HashMap<String, Expression> copies) {
+        if (expression == null || expression instanceof Literal) return expression;
+        Expression copy = copies.get(Instructions.location(expression));
+        return copy != null ? copy : expression;
+    }
+}
@@ -0,0 +1,38 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+
+public class DeadCodeElimination implements Pass {
+
+    @Override
+    public String getName() {
+        return "dead-code-elimination";
+    }
+
+    @Override
+    public List<Command> run(List<Command> code) {
+        FlowGraph graph = new FlowGraph(code);
+        boolean[] reachable = graph.reachable();
+
+        boolean[] targets = new boolean[Instructions.labelBound(code)];
+        for (Block block : graph.getBlocks()) {
+            Command last = block.last();
+            if (reachable[block.index] && last != null && Instructions.isJump(last)) {
+                targets[last.target] = true;
+            }
+        }
+
+        List<Command> result = new ArrayList<>();
+        for (Block block : graph.getBlocks()) {
+            if (!reachable[block.index]) continue;
+            for (Command command : block.commands) {
+                if (Instructions.isLabel(command) && !targets[command.label]) continue;
+                result.add(command);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+import com.jc.node.Expression;
+
+public class DeadStoreElimination implements Pass {
+
+    @Override
+    public String getName() {
+        return "dead-store-elimination";
+    }
+
+    @Override
+    public List<Command> run(List<Command> code) {
+        FlowGraph graph = new FlowGraph(code);
+        Liveness liveness = new Liveness(graph);
+
+        for (Block block : graph.getBlocks()) {
+            HashSet<String> live = new HashSet<>(liveness.liveOut(block));
+            // the commands kept, from the last one back, so a large block is not shifted on every removal
+            List<Command> kept = new ArrayList<>(block.commands.size());
+
+            for (int i = block.commands.size() - 1; i >= 0; i--) {
+                Command command = block.commands.get(i);
+                if (Instructions.isLabel(command)) {
+                    kept.add(command);
+                    continue;
+                }
+
+                String defined = Instructions.defined(command);
+                if (defined != null && !live.contains(defined) && !Instructions.hasSideEffects(command)) {
+                    continue;
+                }
+                kept.add(command);
+
+                if (defined != null) live.remove(defined);
+                use(live, command.left);
+                use(live, command.right);
+                String stored = Instructions.stored(command);
+                if (stored != null) live.add(stored);
+            }
+            Collections.reverse(kept);
+            block.commands = kept;
+        }
+        return graph.toCode();
+    }
+
+    private void use(HashSet<String> live, Expression expression) {
+        String location = expression == null ? null : Instructions.location(expression);
+        if (location != null) live.add(location);
+    }
+}
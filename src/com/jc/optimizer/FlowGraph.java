@@ -0,0 +1,101 @@
+package com.jc.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.Op;
+
+public class FlowGraph {
+    private List<Block> blocks;
+    private Block[] labels;
+
+    public FlowGraph(List<Command> code) {
+        blocks = new ArrayList<>();
+        labels = new Block[Instructions.labelBound(code)];
+
+        // labels no jump refers to do not start a block; every statement ends with one
+        boolean[] referenced = new boolean[labels.length];
+        for (Command command : code) {
+            if (Instructions.isJump(command)) referenced[command.target] = true;
+        }
+
+        Block current = null;
+        for (Command command : code) {
+            boolean label = Instructions.isLabel(command) && referenced[command.label];
+            if (current == null || (label && current.last() != null)) {
+                current = newBlock();
+            }
+            if (label) {
+                labels[command.label] = current;
+            }
+            current.commands.add(command);
+            if (Instructions.isJump(command)) {
+                current = null;
+            }
+        }
+        if (blocks.isEmpty()) {
+            newBlock();
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            Command last = block.last();
+            if (last != null && Instructions.isJump(last)) {
+                link(block, target(last));
+            }
+            if ((last == null || last.op != Op.OP_JUMP) && i + 1 < blocks.size()) {
+                link(block, blocks.get(i + 1));
+            }
+        }
+    }
+
+    private Block newBlock() {
+        Block block = new Block(blocks.size());
+        blocks.add(block);
+        return block;
+    }
+
+    private void link(Block from, Block to) {
+        if (to == null) return;
+        from.successors.add(to);
+        to.predecessors.add(from);
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public Block entry() {
+        return blocks.get(0);
+    }
+
+    public Block target(Command jump) {
+        return labels[jump.target];
+    }
+
+    public boolean[] reachable() {
+        boolean[] reached = new boolean[blocks.size()];
+        ArrayDeque<Block> work = new ArrayDeque<>();
+        reached[0] = true;
+        work.add(entry());
+        while (!work.isEmpty()) {
+            for (Block successor : work.poll().successors) {
+                if (!reached[successor.index]) {
+                    reached[successor.index] = true;
+                    work.add(successor);
+                }
+            }
+        }
+        return reached;
+    }
+
+    public List<Command> toCode() {
+        List<Command> code = new ArrayList<>();
+        for (Block block : blocks) {
+            code.addAll(block.commands);
+        }
+        return code;
+    }
+}
@@ -0,0 +1,52 @@
+package com.jc.optimizer;
+
+import com.jc.interpreter.Arithmetic;
+import com.jc.interpreter.Op;
+
+final class Folding {
+
+    private Folding() {
+    }
+
+    // evaluates an operation on constant operands exactly as Runner would, or returns null
+    // when the result is not a compile-time constant (e.g. an integer division by zero)
+    @SuppressWarnings("unchecked")
+    static Object evaluate(Op op, Object a, Object b) {
+        switch (op) {
+            case OP_ISTORE: case OP_IMOV:
+            case OP_RSTORE: case OP_RMOV:
+            case OP_BSTORE: case OP_BMOV:
+            case OP_SSTORE: case OP_SMOV: return a;
+            case OP_I2R: return (double) (Integer) a;
+
+            case OP_IADD: return (Integer) a + (Integer) b;
+            case OP_RADD: return (Double) a + (Double) b;
+            case OP_SCONCAT: return (String) a + b;
+            case OP_ISUB: return (Integer) a - (Integer) b;
+            case OP_RSUB: return (Double) a - (Double) b;
+            case OP_IMULT: return (Integer) a * (Integer) b;
+            case OP_RMULT: return (Double) a * (Double) b;
+            case OP_IDIV: return (Integer) b == 0 ? null : (Integer) a / (Integer) b;
+            case OP_RDIV: return (Double) a / (Double) b;
+            case OP_IPOW: return Arithmetic.ipow((Integer) a, (Integer) b);
+            case OP_RPOW: return Math.pow((Double) a, (Double) b);
+            case OP_IINC: return (Integer) a + 1;
+            case OP_RINC: return (Double) a + 1;
+            case OP_IDEC: return (Integer) a - 1;
+            case OP_RDEC: return (Double) a - 1;
+
+            case OP_OR: return (Boolean) a || (Boolean) b;
+            case OP_AND: return (Boolean) a && (Boolean) b;
+            case OP_NOT: return !(Boolean) a;
+
+            case OP_IEQ: case OP_REQ: case OP_BEQ: case OP_SEQ: return a.equals(b);
+            case OP_INEQ: case OP_RNEQ: case OP_BNEQ: case OP_SNEQ: return !a.equals(b);
+            case OP_IGT: case OP_RGT: case OP_BGT: case OP_SGT: return ((Comparable<Object>) a).compareTo(b) > 0;
+            case OP_IGTE: case OP_RGTE: case OP_BGTE: case OP_SGTE: return ((Comparable<Object>) a).compareTo(b) >= 0;
+            case OP_ILT: case OP_RLT: case OP_BLT: case OP_SLT: return ((Comparable<Object>) a).compareTo(b) < 0;
+            case OP_ILTE: case OP_RLTE: case OP_BLTE: case OP_SLTE: return ((Comparable<Object>) a).compareTo(b) <= 0;
+
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.Op;
+import com.jc.node.Variable;
+
+// peephole pass that replaces common instruction pairs with superinstructions; runs last because the
+// other passes do not know the fused opcodes
+public class Fusion implements Pass {
+    private static final HashMap<Op, Op> INCREMENTS = new HashMap<>();
+    private static final HashMap<Op, Op> JUMPS_IF_TRUE = new HashMap<>();
+    private static final HashMap<Op, Op> JUMPS_IF_FALSE = new HashMap<>();
+
+    static {
+        INCREMENTS.put(Op.OP_IINC, Op.OP_IINC_VAR);
+        INCREMENTS.put(Op.OP_RINC, Op.OP_RINC_VAR);
+        INCREMENTS.put(Op.OP_IDEC, Op.OP_IDEC_VAR);
+        INCREMENTS.put(Op.OP_RDEC, Op.OP_RDEC_VAR);
+
+        // reals compare through Double.compare, so the negated relation is exact for them too
+        compare(Op.OP_IEQ, Op.OP_IEQ_JUMP, Op.OP_INEQ_JUMP);
+        compare(Op.OP_INEQ, Op.OP_INEQ_JUMP, Op.OP_IEQ_JUMP);
+        compare(Op.OP_IGT, Op.OP_IGT_JUMP, Op.OP_ILTE_JUMP);
+        compare(Op.OP_IGTE, Op.OP_IGTE_JUMP, Op.OP_ILT_JUMP);
+        compare(Op.OP_ILT, Op.OP_ILT_JUMP, Op.OP_IGTE_JUMP);
+        compare(Op.OP_ILTE, Op.OP_ILTE_JUMP, Op.OP_IGT_JUMP);
+        compare(Op.OP_REQ, Op.OP_REQ_JUMP, Op.OP_RNEQ_JUMP);
+        compare(Op.OP_RNEQ, Op.OP_RNEQ_JUMP, Op.OP_REQ_JUMP);
+        compare(Op.OP_RGT, Op.OP_RGT_JUMP, Op.OP_RLTE_JUMP);
+        compare(Op.OP_RGTE, Op.OP_RGTE_JUMP, Op.OP_RLT_JUMP);
+        compare(Op.OP_RLT, Op.OP_RLT_JUMP, Op.OP_RGTE_JUMP);
+        compare(Op.OP_RLTE, Op.OP_RLTE_JUMP, Op.OP_RGT_JUMP);
+    }
+
+    private static void compare(Op op, Op ifTrue, Op ifFalse) {
+        JUMPS_IF_TRUE.put(op, ifTrue);
+        JUMPS_IF_FALSE.put(op, ifFalse);
+    }
+
+    @Override
+    public String getName() {
+        return "fusion";
+    }
+
+    @Override
+    public List<Command> run(List<Command> code) {
+        HashMap<String, Integer> uses = new HashMap<>();
+        HashSet<Integer> targets = new HashSet<>();
+        for (Command command : code) {
+            use(uses, Instructions.location(command.left));
+            use(uses, Instructions.location(command.right));
+            if (Instructions.isJump(command)) targets.add(command.target);
+        }
+
+        List<Command> fused = new ArrayList<>(code.size());
+        int i = 0;
+        while (i < code.size()) {
+            Command command = code.get(i);
+            int consumed = 0;
+            if (command.op != null && isSingleUse(uses, command)) {
+                if (INCREMENTS.containsKey(command.op)) consumed = fuseIncrement(code, i, fused);
+                else if (JUMPS_IF_TRUE.containsKey(command.op)) consumed = fuseCompare(code, i, targets, fused);
+            }
+            if (consumed == 0) {
+                fused.add(command);
+                consumed = 1;
+            }
+            i += consumed;
+        }
+        return fused;
+    }
+
+    private void use(HashMap<String, Integer> uses, String location) {
+        if (location != null) uses.merge(location, 1, Integer::sum);
+    }
+
+    private boolean isSingleUse(HashMap<String, Integer> uses, Command command) {
+        return command.result != null && uses.getOrDefault("t:" + command.result, 0) == 1;
+    }
+
+    // `inc x -> t; store t -> x` becomes one increment of x in place
+    private int fuseIncrement(List<Command> code, int i, List<Command> fused) {
+        Command increment = code.get(i);
+        Command store = i + 1 < code.size() ? code.get(i + 1) : null;
+        if (!(increment.left instanceof Variable) || store == null
+            || store.op != Instructions.moveOp(Instructions.resultType(increment), true)) {
+            return 0;
+        }
+
+        String variable = ((Variable) increment.left).name;
+        if (!variable.equals(store.result) || !("t:" + increment.result).equals(Instructions.location(store.left))) {
+            return 0;
+        }
+
+        Command command = new Command(INCREMENTS.get(increment.op), increment.left, null, variable);
+        command.line = increment.line;
+        fused.add(command);
+        return 2;
+    }
+
+    // `cmp a, b -> t; [labels nothing jumps to;] if t jump L` becomes one compare-and-branch
+    private int fuseCompare(List<Command> code, int i, HashSet<Integer> targets, List<Command> fused) {
+        Command compare = code.get(i);
+        int j = i + 1;
+        while (j < code.size() && Instructions.isLabel(code.get(j)) && !targets.contains(code.get(j).label)) j++;
+        if (j >= code.size()) return 0;
+
+        Command jump = code.get(j);
+        if (!Instructions.isConditionalJump(jump) || !("t:" + compare.result).equals(Instructions.location(jump.left))) {
+            return 0;
+        }
+
+        Op op = jump.op == Op.OP_IFTRUE_JUMP ? JUMPS_IF_TRUE.get(compare.op) : JUMPS_IF_FALSE.get(compare.op);
+        Command command = new Command(op, compare.left, compare.right, null);
+        command.target = jump.target;
+        command.line = compare.line;
+        fused.addAll(code.subList(i + 1, j));
+        fused.add(command);
+        return j - i + 1;
+    }
+}
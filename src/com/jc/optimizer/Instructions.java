@@ -0,0 +1,123 @@
+package com.jc.optimizer;
+
+import java.util.List;
+
+import com.jc.Constants;
+import com.jc.interpreter.Command;
+import com.jc.interpreter.Op;
+import com.jc.interpreter.Opcode;
+import com.jc.interpreter.Program;
+import com.jc.interpreter.Slots;
+import com.jc.node.Expression;
+import com.jc.node.Literal;
+import com.jc.node.Operation;
+import com.jc.node.Variable;
+
+final class Instructions {
+
+    private Instructions() {
+    }
+
+    static boolean isLabel(Command command) {
+        return command.op == null;
+    }
+
+    // one past the highest label id placed or jumped to
+    static int labelBound(List<Command> code) {
+        int bound = 1;
+        for (Command command : code) {
+            bound = Math.max(bound, Math.max(command.label, command.target) + 1);
+        }
+        return bound;
+    }
+
+    // includes the fused compare-and-branch opcodes, which only the slot allocator sees
+    static boolean isJump(Command command) {
+        return command.op != null && Opcode.isJump(Opcode.of(command.op));
+    }
+
+    static boolean isConditionalJump(Command command) {
+        return command.op == Op.OP_IFTRUE_JUMP || command.op == Op.OP_IFFALSE_JUMP;
+    }
+
+    static int count(List<Command> code) {
+        int count = 0;
+        for (Command command : code) {
+            if (!isLabel(command)) count++;
+        }
+        return count;
+    }
+
+    static int resultType(Command command) {
+        return command.op == null ? Program.NONE : Opcode.resultType(Opcode.of(command.op));
+    }
+
+    static int operandType(Command command) {
+        return Opcode.operandType(Opcode.of(command.op));
+    }
+
+    static int rightOperandType(Command command) {
+        return Opcode.rightOperandType(Opcode.of(command.op));
+    }
+
+    // the storage cell a command writes, or null; variables and temps live in separate namespaces
+    static String defined(Command command) {
+        if (resultType(command) == Program.NONE) return null;
+        return Opcode.writesVariable(Opcode.of(command.op)) ? "v:" + command.result : "t:" + command.result;
+    }
+
+    // the array variable an element store writes into; it is read like an operand, since the array itself
+    // stays the same
+    static String stored(Command command) {
+        if (command.op == null || !Opcode.isElementStore(Opcode.of(command.op))) return null;
+        return "v:" + command.result;
+    }
+
+    static String location(Expression expression) {
+        if (expression instanceof Variable) return "v:" + ((Variable) expression).name;
+        if (expression instanceof Operation) return "t:" + ((Operation) expression).temp;
+        return null;
+    }
+
+    static boolean hasSideEffects(Command command) {
+        if (command.op == Op.OP_IDIV) {
+            return !(command.right instanceof Literal) || ((Integer) ((Literal) command.right).value) == 0;
+        }
+        // array elements are memory the passes do not track, so array code is neither removed nor moved; nor is
+        // a call, which may print
+        int op = Opcode.of(command.op);
+        return resultType(command) == Program.NONE || isJump(command) || Opcode.isArrayAccess(op) || Opcode.isCall(op);
+    }
+
+    // the left operand of parallel loop code names a variable slot; propagation must not replace it
+    static boolean isPinned(Command command) {
+        return command.op != null && Opcode.isParallel(Opcode.of(command.op));
+    }
+
+    static String typeName(int type) {
+        if (type == Slots.INT) return Constants.T_INT;
+        if (type == Slots.REAL) return Constants.T_REAL;
+        if (type == Slots.BOOL) return Constants.T_BOOL;
+        return Constants.T_STR;
+    }
+
+    static Literal literal(int type, Object value) {
+        Literal literal = new Literal();
+        literal.type = typeName(type);
+        literal.value = value;
+        return literal;
+    }
+
+    static Op moveOp(int type, boolean store) {
+        if (type == Slots.INT) return store ? Op.OP_ISTORE : Op.OP_IMOV;
+        if (type == Slots.REAL) return store ? Op.OP_RSTORE : Op.OP_RMOV;
+        if (type == Slots.BOOL) return store ? Op.OP_BSTORE : Op.OP_BMOV;
+        if (type == Slots.STR) return store ? Op.OP_SSTORE : Op.OP_SMOV;
+        return store ? Op.OP_ASTORE : Op.OP_AMOV;
+    }
+
+    static boolean isMove(Command command) {
+        return command.op != null && (command.op.ordinal() >= Op.OP_ISTORE.ordinal()
+            && command.op.ordinal() <= Op.OP_SMOV.ordinal() || command.op == Op.OP_ASTORE || command.op == Op.OP_AMOV);
+    }
+}
@@ -0,0 +1,88 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.Op;
+
+public class JumpThreading implements Pass {
+    private static final int MAX_HOPS = 16;
+
+    @Override
+    public String getName() {
+        return "jump-threading";
+    }
+
+    @Override
+    public List<Command> run(List<Command> code) {
+        int[] labels = new int[Instructions.labelBound(code)];
+        Arrays.fill(labels, -1);
+        for (int i = 0; i < code.size(); i++) {
+            if (Instructions.isLabel(code.get(i))) labels[code.get(i).label] = i;
+        }
+
+        for (Command command : code) {
+            if (Instructions.isJump(command)) {
+                command.target = thread(code, labels, command.target);
+            }
+        }
+
+        // both rewrites copy what they keep into a new list, as removing from the middle of a large script one
+        // instruction at a time is quadratic
+        List<Command> inverted = new ArrayList<>(code.size());
+        for (int i = 0; i < code.size(); i++) {
+            Command command = code.get(i);
+            inverted.add(command);
+            if (i + 1 < code.size() && Instructions.isConditionalJump(command) && code.get(i + 1).op == Op.OP_JUMP
+                && fallsInto(code, i + 2, command.target)) {
+                command.op = command.op == Op.OP_IFTRUE_JUMP ? Op.OP_IFFALSE_JUMP : Op.OP_IFTRUE_JUMP;
+                command.target = code.get(i + 1).target;
+                i++;
+            }
+        }
+
+        // built from the end back, so a jump sees the code after it with the later jumps already dropped
+        List<Command> kept = new ArrayList<>(inverted.size());
+        for (int i = inverted.size() - 1; i >= 0; i--) {
+            Command command = inverted.get(i);
+            if (Instructions.isJump(command) && followedBy(kept, command.target)) continue;
+            kept.add(command);
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    // follows chains of labels that only lead to an unconditional jump
+    private int thread(List<Command> code, int[] labels, int label) {
+        int start = label;
+        for (int hops = 0; hops < MAX_HOPS; hops++) {
+            int index = labels[label];
+            if (index < 0) break;
+
+            int next = index;
+            while (next < code.size() && Instructions.isLabel(code.get(next))) next++;
+            if (next >= code.size() || code.get(next).op != Op.OP_JUMP) break;
+            label = code.get(next).target;
+            if (label == start) break;
+        }
+        return label;
+    }
+
+    private boolean fallsInto(List<Command> code, int from, int label) {
+        for (int i = from; i < code.size() && Instructions.isLabel(code.get(i)); i++) {
+            if (code.get(i).label == label) return true;
+        }
+        return false;
+    }
+
+    // fallsInto for code that is kept in reverse, with the next instruction last
+    private boolean followedBy(List<Command> reversed, int label) {
+        for (int i = reversed.size() - 1; i >= 0 && Instructions.isLabel(reversed.get(i)); i--) {
+            if (reversed.get(i).label == label) return true;
+        }
+        return false;
+    }
+}
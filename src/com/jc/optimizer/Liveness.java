@@ -0,0 +1,71 @@
+package com.jc.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+
+public class Liveness {
+    private List<HashSet<String>> liveIn;
+    private List<HashSet<String>> liveOut;
+
+    public Liveness(FlowGraph graph) {
+        List<Block> blocks = graph.getBlocks();
+        liveIn = new ArrayList<>(blocks.size());
+        liveOut = new ArrayList<>(blocks.size());
+        List<HashSet<String>> uses = new ArrayList<>(blocks.size());
+        List<HashSet<String>> defs = new ArrayList<>(blocks.size());
+
+        // blocks are numbered in order, so each one's sets land at its index
+        for (Block block : blocks) {
+            HashSet<String> used = new HashSet<>();
+            HashSet<String> defined = new HashSet<>();
+            for (Command command : block.commands) {
+                if (Instructions.isLabel(command)) continue;
+                use(used, defined, Instructions.location(command.left));
+                use(used, defined, Instructions.location(command.right));
+                use(used, defined, Instructions.stored(command));
+                String location = Instructions.defined(command);
+                if (location != null) defined.add(location);
+            }
+            uses.add(used);
+            defs.add(defined);
+            liveIn.add(new HashSet<>(used));
+            liveOut.add(new HashSet<>());
+        }
+
+        ArrayDeque<Block> work = new ArrayDeque<>();
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            work.add(blocks.get(i));
+        }
+        while (!work.isEmpty()) {
+            Block block = work.poll();
+            HashSet<String> out = liveOut.get(block.index);
+            for (Block successor : block.successors) {
+                out.addAll(liveIn.get(successor.index));
+            }
+
+            HashSet<String> in = new HashSet<>(out);
+            in.removeAll(defs.get(block.index));
+            in.addAll(uses.get(block.index));
+            if (!in.equals(liveIn.get(block.index))) {
+                liveIn.set(block.index, in);
+                work.addAll(block.predecessors);
+            }
+        }
+    }
+
+    private void use(HashSet<String> uses, HashSet<String> defs, String location) {
+        if (location != null && !defs.contains(location)) uses.add(location);
+    }
+
+    public HashSet<String> liveIn(Block block) {
+        return liveIn.get(block.index);
+    }
+
+    public HashSet<String> liveOut(Block block) {
+        return liveOut.get(block.index);
+    }
+}
@@ -0,0 +1,52 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+
+public class Loop {
+    public Block header;
+    public LinkedHashSet<Block> body;
+    public List<Block> latches;
+
+    public Loop(Block header) {
+        this.header = header;
+        this.body = new LinkedHashSet<>();
+        this.latches = new ArrayList<>();
+        body.add(header);
+    }
+
+    public boolean contains(Block block) {
+        return body.contains(block);
+    }
+
+    // blocks inside the loop that have a successor outside of it
+    public List<Block> exits() {
+        List<Block> exits = new ArrayList<>();
+        for (Block block : body) {
+            for (Block successor : block.successors) {
+                if (!contains(successor)) {
+                    exits.add(block);
+                    break;
+                }
+            }
+        }
+        return exits;
+    }
+
+    // hoisted code is placed in front of the header's labels, so the loop must only be
+    // entered by falling through from the block laid out before it
+    public boolean hasPreheaderPosition(FlowGraph graph) {
+        for (Block predecessor : header.predecessors) {
+            if (contains(predecessor)) continue;
+
+            Command last = predecessor.last();
+            boolean fallsThrough = predecessor.index == header.index - 1
+                && (last == null || !Instructions.isJump(last) || graph.target(last) != header);
+            if (!fallsThrough) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import com.jc.interpreter.Command;
+import com.jc.node.Expression;
+
+public class LoopInvariantCodeMotion implements Pass {
+    private static final int MAX_ROUNDS = 64;
+
+    @Override
+    public String getName() {
+        return "loop-invariant-code-motion";
+    }
+
+    @Override
+    public List<Command> run(List<Command> code) {
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            FlowGraph graph = new FlowGraph(code);
+            Loops loops = new Loops(graph);
+            Liveness liveness = new Liveness(graph);
+
+            boolean hoisted = false;
+            for (Loop loop : loops.getLoops()) {
+                if (hoist(graph, loops, liveness, loop)) {
+                    hoisted = true;
+                    break;
+                }
+            }
+
+            code = graph.toCode();
+            if (!hoisted) break;
+        }
+        return code;
+    }
+
+    private boolean hoist(FlowGraph graph, Loops loops, Liveness liveness, Loop loop) {
+        if (!loop.hasPreheaderPosition(graph)) return false;
+
+        HashMap<String, Integer> definitions = new HashMap<>();
+        for (Block block : loop.body) {
+            for (Command command : block.commands) {
+                String defined = Instructions.defined(command);
+                if (defined != null) definitions.merge(defined, 1, Integer::sum);
+            }
+        }
+
+        HashSet<String> invariant = new HashSet<>();
+        List<Command> preheader = new ArrayList<>();
+        List<Block> exits = loop.exits();
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Block block : loop.body) {
+                for (int i = 0; i < block.commands.size(); i++) {
+                    Command command = block.commands.get(i);
+                    String defined = Instructions.defined(command);
+                    if (defined == null || !defined.startsWith("t:") || Instructions.hasSideEffects(command)) continue;
+                    if (definitions.get(defined) != 1 || liveness.liveIn(loop.header).contains(defined)) continue;
+                    if (!isInvariant(command.left, definitions, invariant)) continue;
+                    if (!isInvariant(command.right, definitions, invariant)) continue;
+                    if (!dominatesExits(loops, liveness, loop, block, exits, defined)) continue;
+
+                    invariant.add(defined);
+                    preheader.add(command);
+                    block.commands.remove(i--);
+                    changed = true;
+                }
+            }
+        }
+
+        if (preheader.isEmpty()) return false;
+        loop.header.commands.addAll(0, preheader);
+        return true;
+    }
+
+    private boolean isInvariant(Expression expression, HashMap<String, Integer> definitions, HashSet<String> invariant) {
+        if (expression == null) return true;
+        String location = Instructions.location(expression);
+        return location == null || !definitions.containsKey(location) || invariant.contains(location);
+    }
+
+    // hoisting may only widen where a value is computed if nobody outside the loop can tell
+    private boolean dominatesExits(Loops loops, Liveness liveness, Loop loop, Block block, List<Block> exits, String defined) {
+        for (Block exit : exits) {
+            if (loops.dominates(block, exit)) continue;
+            for (Block successor : exit.successors) {
+                if (!loop.contains(successor) && liveness.liveIn(successor).contains(defined)) return false;
+            }
+        }
+        return true;
+    }
+}
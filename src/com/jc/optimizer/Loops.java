@@ -0,0 +1,128 @@
+package com.jc.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class Loops {
+    private FlowGraph graph;
+    private int[] idom;
+    private int[] order;
+    private List<Loop> loops;
+
+    public Loops(FlowGraph graph) {
+        this.graph = graph;
+        computeDominators();
+        findLoops();
+    }
+
+    public List<Loop> getLoops() {
+        return loops;
+    }
+
+    public boolean dominates(Block a, Block b) {
+        int node = b.index;
+        if (idom[node] < 0) return false;
+        while (true) {
+            if (node == a.index) return true;
+            if (idom[node] == node) return false;
+            node = idom[node];
+        }
+    }
+
+    // Cooper, Harvey and Kennedy's iterative algorithm over reverse postorder
+    private void computeDominators() {
+        List<Block> blocks = graph.getBlocks();
+        List<Block> postorder = postorder();
+        order = new int[blocks.size()];
+        Arrays.fill(order, -1);
+        for (int i = 0; i < postorder.size(); i++) {
+            order[postorder.get(i).index] = i;
+        }
+
+        idom = new int[blocks.size()];
+        Arrays.fill(idom, -1);
+        int entry = graph.entry().index;
+        idom[entry] = entry;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = postorder.size() - 1; i >= 0; i--) {
+                Block block = postorder.get(i);
+                if (block.index == entry) continue;
+
+                int dominator = -1;
+                for (Block predecessor : block.predecessors) {
+                    if (idom[predecessor.index] < 0) continue;
+                    dominator = dominator < 0 ? predecessor.index : intersect(predecessor.index, dominator);
+                }
+                if (dominator >= 0 && idom[block.index] != dominator) {
+                    idom[block.index] = dominator;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (order[a] < order[b]) a = idom[a];
+            while (order[b] < order[a]) b = idom[b];
+        }
+        return a;
+    }
+
+    private List<Block> postorder() {
+        List<Block> result = new ArrayList<>();
+        boolean[] visited = new boolean[graph.getBlocks().size()];
+        ArrayDeque<Object[]> stack = new ArrayDeque<>();
+        visited[graph.entry().index] = true;
+        stack.push(new Object[] { graph.entry(), 0 });
+
+        while (!stack.isEmpty()) {
+            Object[] top = stack.peek();
+            Block block = (Block) top[0];
+            int next = (Integer) top[1];
+            if (next < block.successors.size()) {
+                top[1] = next + 1;
+                Block successor = block.successors.get(next);
+                if (!visited[successor.index]) {
+                    visited[successor.index] = true;
+                    stack.push(new Object[] { successor, 0 });
+                }
+            }
+            else {
+                result.add(block);
+                stack.pop();
+            }
+        }
+        return result;
+    }
+
+    private void findLoops() {
+        LinkedHashMap<Block, Loop> byHeader = new LinkedHashMap<>();
+
+        for (Block block : graph.getBlocks()) {
+            for (Block successor : block.successors) {
+                if (!dominates(successor, block)) continue;
+
+                Loop loop = byHeader.computeIfAbsent(successor, Loop::new);
+                loop.latches.add(block);
+
+                ArrayDeque<Block> work = new ArrayDeque<>();
+                if (loop.body.add(block)) work.add(block);
+                while (!work.isEmpty()) {
+                    for (Block predecessor : work.poll().predecessors) {
+                        if (idom[predecessor.index] >= 0 && loop.body.add(predecessor)) work.add(predecessor);
+                    }
+                }
+            }
+        }
+
+        loops = new ArrayList<>(byHeader.values());
+        loops.sort((a, b) -> a.body.size() - b.body.size());
+    }
+}
@@ -0,0 +1,165 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.FunctionCode;
+import com.jc.interpreter.Slots;
+
+public class Optimizer {
+    private static final int MAX_ROUNDS = 8;
+
+    private int level;
+    private List<Pass> passes;
+    private Pass fusion;
+    private LinkedHashMap<String, Integer> removed;
+    private int slotsBefore;
+    private int slotsAfter;
+    private int inlinedCalls;
+
+    public Optimizer(int level, HashMap<String, String> tempTable) {
+        this.level = level;
+        this.passes = new ArrayList<>();
+        this.removed = new LinkedHashMap<>();
+
+        if (level >= 1) {
+            passes.add(new ConstantPropagation());
+            passes.add(new CopyPropagation());
+            passes.add(new DeadStoreElimination());
+            passes.add(new JumpThreading());
+            passes.add(new DeadCodeElimination());
+        }
+        if (level >= 2) {
+            passes.add(new LoopInvariantCodeMotion());
+            passes.add(new StrengthReduction(tempTable));
+        }
+        for (Pass pass : passes) {
+            removed.put(pass.getName(), 0);
+        }
+        if (level >= 1) {
+            fusion = new Fusion();
+            removed.put(fusion.getName(), 0);
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public List<Command> optimize(List<Command> code) {
+        int rounds = level >= 2 ? MAX_ROUNDS : 1;
+
+        for (int round = 0; round < rounds; round++) {
+            boolean changed = false;
+            for (Pass pass : passes) {
+                int before = Instructions.count(code);
+                code = pass.run(code);
+                int delta = before - Instructions.count(code);
+                removed.merge(pass.getName(), delta, Integer::sum);
+                changed |= delta != 0;
+            }
+            if (!changed) break;
+        }
+
+        if (fusion != null) {
+            int before = Instructions.count(code);
+            code = fusion.run(code);
+            removed.merge(fusion.getName(), before - Instructions.count(code), Integer::sum);
+        }
+        return code;
+    }
+
+    // from -O1 on, variables and temps whose lifetimes do not overlap share a frame slot
+    public Slots allocateSlots(List<Command> code, HashMap<String, String> symbolTable, HashMap<String, String> tempTable) {
+        if (level < 1) return new Slots(symbolTable, tempTable);
+
+        Slots slots = new SlotAllocator(symbolTable, tempTable).allocate(code);
+        slotsBefore = symbolTable.size() + tempTable.size();
+        slotsAfter = slots.total();
+        return slots;
+    }
+
+    // every function takes a block of slots of its own after the main program's, so a call never touches the
+    // caller's slots and a recursive call only has to save its function's block
+    public Slots allocateSlots(List<Command> code, List<FunctionCode> functions,
+        HashMap<String, String> symbolTable, HashMap<String, String> tempTable) {
+
+        if (functions.isEmpty()) return allocateSlots(code, symbolTable, tempTable);
+
+        Slots slots = allocateUnit(code, symbolTable, tempTable);
+        for (FunctionCode function : functions) {
+            Slots unit = allocateUnit(function.code, symbolTable, tempTable);
+            function.slotBases = slots.append(unit);
+            function.slotCounts = new int[Slots.TYPES];
+            for (int type = 0; type < Slots.TYPES; type++) {
+                function.slotCounts[type] = unit.count(type);
+            }
+        }
+        if (level >= 1) {
+            slotsBefore = symbolTable.size() + tempTable.size();
+            slotsAfter = slots.total();
+        }
+        return slots;
+    }
+
+    // at -O0 each cell the code names keeps a slot of its own
+    private Slots allocateUnit(List<Command> code, HashMap<String, String> symbolTable, HashMap<String, String> tempTable) {
+        if (level >= 1) return new SlotAllocator(symbolTable, tempTable).allocate(code);
+
+        Slots slots = new Slots();
+        int[] counts = new int[Slots.TYPES];
+        for (Command command : code) {
+            if (Instructions.isLabel(command)) continue;
+            put(slots, counts, Instructions.location(command.left), symbolTable, tempTable);
+            put(slots, counts, Instructions.location(command.right), symbolTable, tempTable);
+            put(slots, counts, Instructions.stored(command), symbolTable, tempTable);
+            put(slots, counts, Instructions.defined(command), symbolTable, tempTable);
+        }
+        return slots;
+    }
+
+    private void put(Slots slots, int[] counts, String location, HashMap<String, String> symbolTable,
+        HashMap<String, String> tempTable) {
+
+        if (location == null) return;
+        String name = location.substring(2);
+        if (location.startsWith("v:")) {
+            if (slots.containsVariable(name)) return;
+            int type = Slots.typeOf(symbolTable.get(name));
+            slots.putVariable(name, type, counts[type]++);
+        }
+        else {
+            if (slots.containsTemp(name)) return;
+            int type = Slots.typeOf(tempTable.get(name));
+            slots.putTemp(name, type, counts[type]++);
+        }
+    }
+
+    public void setInlinedCalls(int inlinedCalls) {
+        this.inlinedCalls = inlinedCalls;
+    }
+
+    public Map<String, Integer> getRemovedInstructions() {
+        return removed;
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("optimization level -O%d%n", level));
+        for (Map.Entry<String, Integer> entry : removed.entrySet()) {
+            int delta = entry.getValue();
+            report.append(String.format("%-28s %6d %s%n", entry.getKey(), Math.abs(delta), delta < 0 ? "added" : "removed"));
+        }
+        if (inlinedCalls > 0) {
+            report.append(String.format("%-28s %6d calls%n", "inlining", inlinedCalls));
+        }
+        if (slotsBefore > 0) {
+            report.append(String.format("%-28s %6d frame slots, was %d%n", "slot-allocation", slotsAfter, slotsBefore));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.jc.optimizer;
+
+import java.util.List;
+
+import com.jc.interpreter.Command;
+
+public interface Pass {
+
+    String getName();
+
+    List<Command> run(List<Command> code);
+}
@@ -0,0 +1,98 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.jc.interpreter.Command;
+import com.jc.interpreter.Slots;
+
+// linear-scan register allocation: every variable and temp gets a live interval over the code, and cells
+// whose intervals do not overlap share a frame slot. A variable declared in a block is dead once the block
+// is left, so its slot goes back to the pool like a temp's.
+public class SlotAllocator {
+    private HashMap<String, String> symbolTable;
+    private HashMap<String, String> tempTable;
+
+    public SlotAllocator(HashMap<String, String> symbolTable, HashMap<String, String> tempTable) {
+        this.symbolTable = symbolTable;
+        this.tempTable = tempTable;
+    }
+
+    public Slots allocate(List<Command> code) {
+        LinkedHashMap<String, int[]> intervals = intervals(code);
+
+        Slots slots = new Slots();
+        List<PriorityQueue<int[]>> active = new ArrayList<>();
+        List<PriorityQueue<Integer>> free = new ArrayList<>();
+        int[] counts = new int[Slots.TYPES];
+        for (int type = 0; type < counts.length; type++) {
+            active.add(new PriorityQueue<>((x, y) -> Integer.compare(x[0], y[0])));
+            free.add(new PriorityQueue<>());
+        }
+
+        // intervals come in order of their start, so each one only has to wait for the active ones to end
+        for (Map.Entry<String, int[]> entry : intervals.entrySet()) {
+            String location = entry.getKey();
+            int[] interval = entry.getValue();
+            int type = typeOf(location);
+
+            PriorityQueue<int[]> live = active.get(type);
+            while (!live.isEmpty() && live.peek()[0] < interval[0]) {
+                free.get(type).add(live.poll()[1]);
+            }
+
+            Integer slot = free.get(type).poll();
+            if (slot == null) slot = counts[type]++;
+            live.add(new int[] { interval[1], slot });
+
+            String name = location.substring(2);
+            if (location.startsWith("v:")) slots.putVariable(name, type, slot);
+            else slots.putTemp(name, type, slot);
+        }
+        return slots;
+    }
+
+    // each instruction i has two points: 2i where it reads its operands and 2i + 1 where it writes its
+    // result, so a temp read for the last time can hand its slot to the result of the same instruction
+    private LinkedHashMap<String, int[]> intervals(List<Command> code) {
+        FlowGraph graph = new FlowGraph(code);
+        Liveness liveness = new Liveness(graph);
+        LinkedHashMap<String, int[]> intervals = new LinkedHashMap<>();
+
+        int position = 0;
+        for (Block block : graph.getBlocks()) {
+            for (String location : liveness.liveIn(block)) {
+                extend(intervals, location, 2 * position);
+            }
+            for (Command command : block.commands) {
+                if (!Instructions.isLabel(command)) {
+                    extend(intervals, Instructions.location(command.left), 2 * position);
+                    extend(intervals, Instructions.location(command.right), 2 * position);
+                    extend(intervals, Instructions.stored(command), 2 * position);
+                    extend(intervals, Instructions.defined(command), 2 * position + 1);
+                }
+                position++;
+            }
+            for (String location : liveness.liveOut(block)) {
+                extend(intervals, location, 2 * position - 1);
+            }
+        }
+        return intervals;
+    }
+
+    private void extend(LinkedHashMap<String, int[]> intervals, String location, int point) {
+        if (location == null) return;
+        int[] interval = intervals.get(location);
+        if (interval == null) intervals.put(location, new int[] { point, point });
+        else interval[1] = Math.max(interval[1], point);
+    }
+
+    private int typeOf(String location) {
+        String name = location.substring(2);
+        return Slots.typeOf(location.startsWith("v:") ? symbolTable.get(name) : tempTable.get(name));
+    }
+}
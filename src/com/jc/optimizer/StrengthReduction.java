@@ -0,0 +1,179 @@
+package com.jc.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.jc.Constants;
+import com.jc.interpreter.Command;
+import com.jc.interpreter.Op;
+import com.jc.interpreter.Slots;
+import com.jc.node.Expression;
+import com.jc.node.Literal;
+import com.jc.node.Operation;
+import com.jc.node.Variable;
+
+public class StrengthReduction implements Pass {
+    private static final int MAX_ROUNDS = 64;
+
+    private HashMap<String, String> tempTable;
+    private int sequence;
+
+    public StrengthReduction(HashMap<String, String> tempTable) {
+        this.tempTable = tempTable;
+        this.sequence = 1;
+    }
+
+    @Override
+    public String getName() {
+        return "strength-reduction";
+    }
+
+    @Override
+    public List<Command> run(List<Command> code) {
+        for (Command command : code) {
+            if (command.op == Op.OP_RPOW && isLiteral(command.right, 2.0)) {
+                command.op = Op.OP_RMULT;
+                command.right = command.left;
+            }
+        }
+
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            FlowGraph graph = new FlowGraph(code);
+            Loops loops = new Loops(graph);
+
+            boolean reduced = false;
+            for (Loop loop : loops.getLoops()) {
+                if (reduce(graph, loop)) {
+                    reduced = true;
+                    break;
+                }
+            }
+
+            code = graph.toCode();
+            if (!reduced) break;
+        }
+        return code;
+    }
+
+    // an induction variable is a variable whose only write in the loop is 'i = i + c'
+    private static class Induction {
+        Block block;
+        int storeIndex;
+        int step;
+    }
+
+    private boolean reduce(FlowGraph graph, Loop loop) {
+        if (!loop.hasPreheaderPosition(graph)) return false;
+
+        HashMap<String, Integer> definitions = new HashMap<>();
+        HashMap<String, Command> definers = new HashMap<>();
+        for (Block block : loop.body) {
+            for (Command command : block.commands) {
+                String defined = Instructions.defined(command);
+                if (defined == null) continue;
+                definitions.merge(defined, 1, Integer::sum);
+                definers.put(defined, command);
+            }
+        }
+
+        for (Block block : loop.body) {
+            for (int i = 0; i < block.commands.size(); i++) {
+                Command command = block.commands.get(i);
+                if (command.op != Op.OP_IMULT) continue;
+
+                Expression variable = command.left;
+                Expression factor = command.right;
+                if (factor instanceof Variable && variable instanceof Literal) {
+                    variable = command.right;
+                    factor = command.left;
+                }
+                if (!(variable instanceof Variable) || !(factor instanceof Literal)) continue;
+
+                Induction induction = induction(loop, definitions, definers, ((Variable) variable).name);
+                if (induction == null) continue;
+
+                int multiplier = (Integer) ((Literal) factor).value;
+                Operation reduced = newTemp();
+
+                Command initial = new Command(Op.OP_IMULT, variable, factor, reduced.temp);
+                Command use = new Command(Op.OP_IMOV, reduced, null, command.result);
+                Command step = new Command(
+                    Op.OP_IADD, reduced, Instructions.literal(Slots.INT, induction.step * multiplier),
+                    reduced.temp);
+                initial.line = use.line = command.line;
+                step.line = induction.block.commands.get(induction.storeIndex).line;
+
+                // the body edits go first: the multiply or the step can be in the header, and inserting into it
+                // would shift their indices
+                block.commands.set(i, use);
+                induction.block.commands.add(induction.storeIndex + 1, step);
+                loop.header.commands.add(0, initial);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Induction induction(Loop loop, HashMap<String, Integer> definitions, HashMap<String, Command> definers, String name) {
+        String location = "v:" + name;
+        if (definitions.getOrDefault(location, 0) != 1) return null;
+
+        for (Block block : loop.body) {
+            for (int i = 0; i < block.commands.size(); i++) {
+                Command store = block.commands.get(i);
+                if (store.op != Op.OP_ISTORE || !store.result.equals(name)) continue;
+                if (!(store.left instanceof Operation)) return null;
+
+                String temp = Instructions.location(store.left);
+                if (definitions.getOrDefault(temp, 0) != 1) return null;
+                Command step = definers.get(temp);
+                if (!block.commands.subList(0, i).contains(step)) return null;
+
+                Integer delta = stepOf(step, name);
+                if (delta == null) return null;
+
+                Induction induction = new Induction();
+                induction.block = block;
+                induction.storeIndex = i;
+                induction.step = delta;
+                return induction;
+            }
+        }
+        return null;
+    }
+
+    private Integer stepOf(Command step, String name) {
+        if (step.op == Op.OP_IINC && isVariable(step.left, name)) return 1;
+        if (step.op == Op.OP_IDEC && isVariable(step.left, name)) return -1;
+        if (step.op == Op.OP_IADD && isVariable(step.left, name) && step.right instanceof Literal) {
+            return (Integer) ((Literal) step.right).value;
+        }
+        if (step.op == Op.OP_IADD && isVariable(step.right, name) && step.left instanceof Literal) {
+            return (Integer) ((Literal) step.left).value;
+        }
+        if (step.op == Op.OP_ISUB && isVariable(step.left, name) && step.right instanceof Literal) {
+            return -(Integer) ((Literal) step.right).value;
+        }
+        return null;
+    }
+
+    private boolean isVariable(Expression expression, String name) {
+        return expression instanceof Variable && ((Variable) expression).name.equals(name);
+    }
+
+    private boolean isLiteral(Expression expression, double value) {
+        return expression instanceof Literal && Double.valueOf(value).equals(((Literal) expression).value);
+    }
+
+    private Operation newTemp() {
+        Operation temp = new Operation();
+        temp.type = Constants.T_INT;
+        temp.operation = Constants.OP_MULT;
+        do {
+            temp.temp = "s" + sequence++;
+        } while (tempTable.containsKey(temp.temp));
+        tempTable.put(temp.temp, Constants.T_INT);
+        return temp;
+    }
+}
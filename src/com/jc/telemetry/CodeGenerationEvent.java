@@ -0,0 +1,24 @@
+package com.jc.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.jc.CodeGeneration")
+@Label("Code Generation")
+@Category("jc")
+@Description("Translation of a syntax tree into three-address code")
+@StackTrace(false)
+public class CodeGenerationEvent extends PhaseEvent {
+    @Label("Instructions")
+    @Description("Three-address instructions generated, before optimization")
+    public int instructions;
+
+    @Label("Variables")
+    public int variables;
+
+    @Label("Temps")
+    public int temps;
+}
@@ -0,0 +1,33 @@
+package com.jc.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.jc.Execution")
+@Label("Execution")
+@Category("jc")
+@Description("One run of a program, from its first instruction to its end, including time suspended by a scheduler")
+@StackTrace(false)
+public class ExecutionEvent extends PhaseEvent {
+    @Label("Instructions")
+    @Description("Instructions in the program")
+    public int instructions;
+
+    @Label("Slots")
+    @Description("Frame slots for variables and temps")
+    public int slots;
+
+    @Label("Executed Instructions")
+    @Description("Instructions executed in loops, counting each loop body once per iteration")
+    public long executedInstructions;
+
+    @Label("Calls")
+    @Description("Calls of functions that were not inlined")
+    public long calls;
+
+    @Label("Failed")
+    public boolean failed;
+}
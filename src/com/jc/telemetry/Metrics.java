@@ -0,0 +1,42 @@
+package com.jc.telemetry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+class Metrics implements MetricsMXBean {
+    final LatencyHistogram parse = new LatencyHistogram();
+    final LatencyHistogram codeGeneration = new LatencyHistogram();
+    final LatencyHistogram execution = new LatencyHistogram();
+    final LongAdder executedInstructions = new LongAdder();
+    final LongAdder calls = new LongAdder();
+    final LongAdder failedExecutions = new LongAdder();
+
+    @Override
+    public PhaseMetrics getParse() {
+        return parse.snapshot();
+    }
+
+    @Override
+    public PhaseMetrics getCodeGeneration() {
+        return codeGeneration.snapshot();
+    }
+
+    @Override
+    public PhaseMetrics getExecution() {
+        return execution.snapshot();
+    }
+
+    @Override
+    public long getExecutedInstructions() {
+        return executedInstructions.sum();
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getFailedExecutions() {
+        return failedExecutions.sum();
+    }
+}
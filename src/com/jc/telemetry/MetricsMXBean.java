@@ -0,0 +1,17 @@
+package com.jc.telemetry;
+
+// registered as com.jc:type=Metrics while telemetry is enabled; every counter covers the whole process
+public interface MetricsMXBean {
+
+    PhaseMetrics getParse();
+
+    PhaseMetrics getCodeGeneration();
+
+    PhaseMetrics getExecution();
+
+    long getExecutedInstructions();
+
+    long getCalls();
+
+    long getFailedExecutions();
+}
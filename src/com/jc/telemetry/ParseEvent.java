@@ -0,0 +1,24 @@
+package com.jc.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.jc.Parse")
+@Label("Parse")
+@Category("jc")
+@Description("Lexing and parsing of one script into a syntax tree")
+@StackTrace(false)
+public class ParseEvent extends PhaseEvent {
+    @Label("Source Length")
+    @Description("Characters of source text")
+    public long sourceLength;
+
+    @Label("Variables")
+    public int variables;
+
+    @Label("Temps")
+    public int temps;
+}
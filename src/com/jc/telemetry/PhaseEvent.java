@@ -0,0 +1,9 @@
+package com.jc.telemetry;
+
+import jdk.jfr.Event;
+
+// the events of the compile and run phases; the start time is kept for the JMX latency histograms too,
+// since an Event doesn't expose its own duration
+abstract class PhaseEvent extends Event {
+    transient long started;
+}
@@ -0,0 +1,36 @@
+package com.jc.telemetry;
+
+import javax.management.ConstructorParameters;
+
+// a snapshot of one phase's counters, which JMX clients see as composite data
+public class PhaseMetrics {
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    @ConstructorParameters({ "count", "totalNanos", "maxNanos", "histogram" })
+    public PhaseMetrics(long count, long totalNanos, long maxNanos, long[] histogram) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.histogram = histogram;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    // element 0 counts latencies under 1 us, element i those from 2^(i-1) up to 2^i us, the last one all longer ones
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+}
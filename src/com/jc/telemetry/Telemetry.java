@@ -0,0 +1,101 @@
+package com.jc.telemetry;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Recording;
+
+// JFR events and JMX counters for parsing, code generation and execution. Off until enable() is called, and then
+// only touched once per phase, never per instruction. The events are recorded by any JFR recording that has them
+// enabled, e.g. one started with -XX:StartFlightRecording, or by the one record() starts
+public final class Telemetry {
+    public static final String OBJECT_NAME = "com.jc:type=Metrics";
+
+    private static volatile boolean enabled;
+    private static final Metrics metrics = new Metrics();
+
+    private Telemetry() {
+    }
+
+    // starts emitting events and registers the metrics MBean with the platform MBean server
+    public static synchronized void enable() throws JMException {
+        if (enabled) return;
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // records the jc events to file, which is written when the JVM exits
+    public static void record(Path file) throws IOException {
+        Recording recording = new Recording();
+        recording.setName("jc");
+        recording.enable(ParseEvent.class);
+        recording.enable(CodeGenerationEvent.class);
+        recording.enable(ExecutionEvent.class);
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+    }
+
+    public static ParseEvent beginParse() {
+        return enabled ? begin(new ParseEvent()) : null;
+    }
+
+    public static void endParse(ParseEvent event, long sourceLength, int variables, int temps) {
+        if (event == null) return;
+        event.sourceLength = sourceLength;
+        event.variables = variables;
+        event.temps = temps;
+        end(event, metrics.parse);
+    }
+
+    public static CodeGenerationEvent beginCodeGeneration() {
+        return enabled ? begin(new CodeGenerationEvent()) : null;
+    }
+
+    public static void endCodeGeneration(CodeGenerationEvent event, int instructions, int variables, int temps) {
+        if (event == null) return;
+        event.instructions = instructions;
+        event.variables = variables;
+        event.temps = temps;
+        end(event, metrics.codeGeneration);
+    }
+
+    public static ExecutionEvent beginExecution() {
+        return enabled ? begin(new ExecutionEvent()) : null;
+    }
+
+    public static void endExecution(
+        ExecutionEvent event, int instructions, int slots, long executed, long calls, boolean failed) {
+
+        if (event == null) return;
+        event.instructions = instructions;
+        event.slots = slots;
+        event.executedInstructions = executed;
+        event.calls = calls;
+        event.failed = failed;
+        metrics.executedInstructions.add(executed);
+        metrics.calls.add(calls);
+        if (failed) metrics.failedExecutions.increment();
+        end(event, metrics.execution);
+    }
+
+    private static <T extends PhaseEvent> T begin(T event) {
+        event.started = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    private static void end(PhaseEvent event, LatencyHistogram histogram) {
+        event.end();
+        histogram.record(System.nanoTime() - event.started);
+        if (event.shouldCommit()) event.commit();
+    }
+}
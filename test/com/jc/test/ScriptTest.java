@@ -0,0 +1,63 @@
+package com.jc.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.jc.JcEngine;
+
+// runs every script in the directory it is given at each optimization level, with and without the loop
+// compiler, and compares what it prints with the .out file next to it
+public class ScriptTest {
+    private static final int MAX_LEVEL = 2;
+
+    public static void main(String[] args) throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(args[0]))) {
+            files.filter(file -> file.toString().endsWith(".jc")).sorted().forEach(scripts::add);
+        }
+
+        int failures = 0;
+        for (Path script : scripts) {
+            String name = script.getFileName().toString();
+            Path expectedFile = script.resolveSibling(name.substring(0, name.length() - 3) + ".out");
+            String expected = new String(Files.readAllBytes(expectedFile), StandardCharsets.UTF_8);
+
+            for (int level = 0; level <= MAX_LEVEL; level++) {
+                for (boolean tiered : new boolean[] { false, true }) {
+                    String run = String.format("%s -O%d%s", name, level, tiered ? "" : " --no-jit");
+                    String actual;
+                    try {
+                        actual = run(script, level, tiered);
+                    } catch (Exception e) {
+                        actual = e.toString();
+                    }
+                    if (!actual.equals(expected)) {
+                        failures++;
+                        System.out.printf("FAIL %s%n  expected: %s%n  actual:   %s%n", run, expected.trim(), actual.trim());
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%d scripts, %d failures%n", scripts.size(), failures);
+        if (failures > 0) System.exit(1);
+    }
+
+    private static String run(Path script, int level, boolean tiered) throws Exception {
+        JcEngine engine = new JcEngine();
+        engine.setOptimizationLevel(level);
+        engine.setTieredCompilation(tiered);
+        // a low threshold so the short loops of the scripts get compiled too
+        engine.setCompileThreshold(tiered ? 2 : -1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        engine.compile(script).run(out);
+        return out.toString(StandardCharsets.UTF_8.name());
+    }
+}